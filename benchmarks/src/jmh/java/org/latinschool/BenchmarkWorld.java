@@ -0,0 +1,58 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.World;
+
+/**
+ * Sets up the globals in {@link Main} that the terrain and player read, without a window or GL context.
+ */
+final class BenchmarkWorld {
+    static final float WORLD_SIZE = 10.0f;
+
+    private BenchmarkWorld() {
+    }
+
+    static void create() {
+        Box2D.init();
+        Main.camera = new OrthographicCamera(WORLD_SIZE, WORLD_SIZE);
+        Main.camera.position.set(WORLD_SIZE / 2, WORLD_SIZE / 2, 0);
+        Main.camera.update();
+        Main.physicsWorld = new World(new Vector2(0.0f, -9.8f), true);
+        Main.fixturePool = new FixturePool(Main.physicsWorld);
+    }
+
+    static void dispose() {
+        Main.fixturePool.dispose();
+        Main.physicsWorld.dispose();
+    }
+
+    static ProceduralTerrain createTerrain(int resolution) {
+        return createTerrain(resolution, false);
+    }
+
+    /**
+     * Same layer setup as Main.initTerrain, with a fixed seed and no save directory.
+     */
+    static ProceduralTerrain createTerrain(int resolution, boolean gridCollision) {
+        return new ProceduralTerrain(
+            new Vector2(0, Main.camera.position.y),
+            resolution,
+            0.025f,
+            new Color[]{Color.GREEN, Color.BROWN, Color.GRAY, Color.DARK_GRAY},
+            new int[]{0, 1, 5, 20},
+            new float[]{10.0f, 10.0f, 25.0f, 50.0f},
+            new Color[]{Color.GRAY, Color.DARK_GRAY},
+            new NoiseCaves(0x5EEDL, 0.1f, 0.5f),
+            0x5EEDL,
+            8,
+            2,
+            6,
+            null,
+            0,
+            gridCollision
+        );
+    }
+}
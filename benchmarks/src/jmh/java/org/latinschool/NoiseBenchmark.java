@@ -0,0 +1,92 @@
+package org.latinschool;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NoiseBenchmark {
+    private static final int SAMPLES = 1024;
+    private static final long SEED = 0x5EEDL;
+
+    private final double[] x = new double[SAMPLES];
+    private final double[] y = new double[SAMPLES];
+    private final double[] z = new double[SAMPLES];
+    private final double[] w = new double[SAMPLES];
+    private final float[] fx = new float[SAMPLES];
+    private final float[] fy = new float[SAMPLES];
+    private final float[] fz = new float[SAMPLES];
+    private final float[] out = new float[SAMPLES];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            x[i] = random.nextDouble() * 1000.0;
+            y[i] = random.nextDouble() * -1000.0; // Terrain depth grows downwards
+            z[i] = random.nextDouble() * 1000.0;
+            w[i] = random.nextDouble() * 1000.0;
+            fx[i] = (float)x[i];
+            fy[i] = (float)y[i];
+            fz[i] = (float)z[i];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise2(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(Noise.noise2(SEED, x[i], y[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise3_ImproveXY(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(Noise.noise3_ImproveXY(SEED, x[i], y[i], z[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise2f(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(Noise.noise2f(SEED, fx[i], fy[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise3f_ImproveXY(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(Noise.noise3f_ImproveXY(SEED, fx[i], fy[i], fz[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise4_ImproveXYZ(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES; i++) {
+            blackhole.consume(Noise.noise4_ImproveXYZ(SEED, x[i], y[i], z[i], w[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float[] noise2Row() {
+        Noise.noise2Row(SEED, x[0], y[0], 0.1 / 15, SAMPLES, out, 0);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float[] noise2Batch() {
+        Noise.noise2Batch(SEED, x, y, out, SAMPLES);
+        return out;
+    }
+}
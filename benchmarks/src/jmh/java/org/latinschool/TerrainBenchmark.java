@@ -0,0 +1,46 @@
+package org.latinschool;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TerrainBenchmark {
+    @Param({"15", "60", "240"})
+    public int resolution;
+
+    private ProceduralTerrain terrain;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        BenchmarkWorld.create();
+        terrain = BenchmarkWorld.createTerrain(resolution);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        terrain.dispose();
+        BenchmarkWorld.dispose();
+    }
+
+    /**
+     * One row cycled and its fixtures rebuilt, what a frame pays per row streamed in.
+     */
+    @Benchmark
+    public ProceduralTerrain cycleRow() {
+        terrain.cycleRow();
+        terrain.updateColliders();
+        return terrain;
+    }
+
+    /**
+     * The store and streaming side of a cycle alone, the fixture rebuild left pending.
+     */
+    @Benchmark
+    public ProceduralTerrain cycleRowWithoutColliders() {
+        terrain.cycleRow();
+        return terrain;
+    }
+}
@@ -0,0 +1,32 @@
+package org.latinschool;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TerrainConstructionBenchmark {
+    @Param({"15", "60", "240"})
+    public int resolution;
+
+    private ProceduralTerrain terrain;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        BenchmarkWorld.create();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        terrain.dispose();
+        BenchmarkWorld.dispose();
+    }
+
+    @Benchmark
+    public ProceduralTerrain construct() {
+        terrain = BenchmarkWorld.createTerrain(resolution);
+        return terrain;
+    }
+}
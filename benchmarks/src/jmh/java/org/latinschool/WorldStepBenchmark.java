@@ -0,0 +1,55 @@
+package org.latinschool;
+
+import com.badlogic.gdx.math.Vector2;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless World.step with a full terrain grid and the player resting on it,
+ * with the player colliding through Box2D terrain fixtures or through the grid.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorldStepBenchmark {
+    private static final int SETTLE_STEPS = 300;
+
+    @Param({"15", "60", "240"})
+    public int resolution;
+
+    @Param({"false", "true"})
+    public boolean gridCollision;
+
+    private ProceduralTerrain terrain;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkWorld.create();
+        terrain = BenchmarkWorld.createTerrain(resolution, gridCollision);
+        Main.terrain = terrain;
+        Main.player = new Player(
+            new Vector2(BenchmarkWorld.WORLD_SIZE / 2, BenchmarkWorld.WORLD_SIZE * 0.9f),
+            0.225f, 0.91f, 1.5f, 2.0f, 1.0f,
+            1.5f, 0.5f,
+            false, 10.0f, 10.0f
+        );
+        for (int i = 0; i < SETTLE_STEPS; i++) {
+            step();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        terrain.dispose();
+        BenchmarkWorld.dispose();
+    }
+
+    @Benchmark
+    public void step() {
+        terrain.updateColliders();
+        Main.player.beforeStep();
+        Main.physicsWorld.step(1f / 60, 6, 2);
+        Main.player.afterStep();
+    }
+}
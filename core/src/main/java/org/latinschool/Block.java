@@ -2,87 +2,75 @@ package org.latinschool;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.BodyDef;
 
+/**
+ * View of a single cell of a {@link TerrainStore}. The view is bound to a storage index,
+ * so like the cell it follows its storage row as the terrain cycles.
+ */
 public class Block {
-    private final Body body;
-    private Color color;
-    private float size;
-    private float baseHealth;
-    private float health;
-
-    public Block(Vector2 position, Color color, float size, float health) {
-        this.body = Box2DUtils.createBoxBody(Main.physicsWorld, position, size, size,
-            BodyDef.BodyType.StaticBody, 0.0f, 0.25f, 0.0f);
-        this.body.setUserData(this);
-        this.color = color;
-        this.size = size;
-        this.baseHealth = health;
-        this.health = health;
+    private final TerrainStore store;
+    private final int index;
+    private final float size;
+
+    public Block(TerrainStore store, int index) {
+        this.store = store;
+        this.index = index;
+        this.size = store.getBlockSize();
     }
 
-
-    public void draw(float outlineWidth) {
-        draw(outlineWidth, color, 4);
-    }
-
-    public void draw(float outlineWidth, Color color, int steps) {
+    /**
+     * Draws a block-sized square centred on (centerX, centerY), inset by the outline width.
+     */
+    public static void draw(float centerX, float centerY, float size, float outlineWidth, Color color) {
         float halfSize = size / 2;
-        Vector2 position = body.getPosition();
-        float x = position.x - halfSize + outlineWidth;
-        float y = position.y + halfSize - outlineWidth;
+        float x = centerX - halfSize + outlineWidth;
+        float y = centerY + halfSize - outlineWidth;
 
-        Main.shapeRenderer.setColor(getAdjustedColor(color, steps));
+        Main.shapeRenderer.setColor(color);
         Main.shapeRenderer.rect(x, y, size - outlineWidth * 2, -size + outlineWidth * 2);
     }
 
-    private Color getAdjustedColor(Color originalColor, int steps) {
-        if (steps == 0) { return originalColor; }
-        float stepSize = 1.0f / steps;
-        float rawFactor = Math.max(0, Math.min(1, Math.round(health / baseHealth / stepSize) * stepSize));
-        float darknessFactor = 0.5f + rawFactor * 0.5f;
-        return new Color(originalColor.r * darknessFactor, originalColor.g * darknessFactor, originalColor.b * darknessFactor, originalColor.a);
+    public Vector2 getPosition() {
+        return new Vector2(store.getX(index), store.getY(index));
     }
 
-    public Body getBody() {
-        return body;
+    public float getX() {
+        return store.getX(index);
     }
 
-    public Vector2 getPosition() {
-        return body.getPosition();
-    }
-
-    public void setPosition(float x, float y) {
-        body.setTransform(x, y, body.getAngle());
+    public float getY() {
+        return store.getY(index);
     }
 
     public Color getColor() {
-        return color;
+        return store.getColor(index);
     }
 
-    public void setColor(Color color) {
-        this.color = color;
+    public Color getShadedColor() {
+        return store.getPalette().getColor(store.getPaletteEntry(index));
     }
 
-    public float getBaseHealth() {
-        return baseHealth;
+    public boolean isOre() {
+        return store.hasFlag(index, TerrainStore.FLAG_ORE);
     }
 
-    public void setBaseHealth(float baseHealth) {
-        this.baseHealth = baseHealth;
-        this.health = baseHealth;
+    public float getBaseHealth() {
+        return store.getBaseHealth(index);
     }
 
     public float getHealth() {
-        return health;
+        return store.getHealth(index);
     }
 
     public void healthBy(float by) {
-        health += by;
+        store.healthBy(index, by);
     }
 
     public float getSize() {
         return size;
     }
+
+    public int getIndex() {
+        return index;
+    }
 }
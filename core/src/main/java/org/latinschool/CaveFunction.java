@@ -0,0 +1,21 @@
+package org.latinschool;
+
+import java.util.BitSet;
+
+/**
+ * Decides which world positions are carved out as caves.
+ */
+public interface CaveFunction {
+    boolean isCave(double x, double y);
+
+    /**
+     * Sets bit i of out for every sample (x + i * dx, y) in a cave, for i in [0, count).
+     */
+    default void fillRow(double x, double y, double dx, int count, BitSet out) {
+        for (int i = 0; i < count; i++) {
+            if (isCave(x + i * dx, y)) {
+                out.set(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.latinschool;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.BitSet;
+
+/**
+ * Reuses the defs and shape the terrain's static bodies and box fixtures are built from.
+ * Box2D copies a def or shape into every body or fixture it creates, so one BodyDef and one PolygonShape are
+ * reset each time, and one FixtureDef is kept per material. Rebuilding a row after mining or cycling
+ * therefore creates and disposes no shape or def.
+ */
+public class FixturePool {
+    private final World world;
+    private final BodyDef bodyDef = new BodyDef();
+    private final PolygonShape boxShape = new PolygonShape();
+    private final Array<FixtureDef> fixtureDefs = new Array<>();
+    private final Vector2 center = new Vector2();
+
+    private int defHits = 0;
+    private int defMisses = 0;
+    private long fixturesCreated = 0;
+
+    public FixturePool(World world) {
+        this.world = world;
+        this.bodyDef.type = BodyDef.BodyType.StaticBody;
+    }
+
+    /**
+     * Fills out with a static body per storage row of the store, each at the store's left edge and its row's height,
+     * all from the one pooled BodyDef.
+     */
+    public void createRowBodies(Body[] out, TerrainStore store, Object userData) {
+        for (int storageRow = 0; storageRow < out.length; storageRow++) {
+            bodyDef.position.set(store.getOriginX(), store.getStorageRowY(storageRow));
+            out[storageRow] = world.createBody(bodyDef);
+            out[storageRow].setUserData(userData);
+        }
+    }
+
+    /**
+     * Replaces the body's fixtures with one box per run of set bits in cells, each cell cellWidth wide
+     * and cellHeight tall with cell 0 starting at the body's origin. Returns the number of fixtures created.
+     */
+    public int buildRow(Body body, BitSet cells, float cellWidth, float cellHeight,
+                        float density, float friction, float restitution) {
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int i = fixtures.size - 1; i >= 0; i--) {
+            body.destroyFixture(fixtures.get(i));
+        }
+
+        FixtureDef fixtureDef = getFixtureDef(density, friction, restitution);
+        int created = 0;
+        int start = cells.nextSetBit(0);
+        while (start >= 0) {
+            int end = cells.nextClearBit(start);
+            float width = (end - start) * cellWidth;
+            center.set(start * cellWidth + width / 2, 0.0f);
+            boxShape.setAsBox(width / 2, cellHeight / 2, center, 0.0f);
+            body.createFixture(fixtureDef);
+            created++;
+            start = cells.nextSetBit(end);
+        }
+        fixturesCreated += created;
+        return created;
+    }
+
+    /**
+     * Returns the pooled def for the material, its shape being the shared box shape.
+     */
+    private FixtureDef getFixtureDef(float density, float friction, float restitution) {
+        for (int i = 0; i < fixtureDefs.size; i++) {
+            FixtureDef fixtureDef = fixtureDefs.get(i);
+            if (fixtureDef.density == density && fixtureDef.friction == friction
+                && fixtureDef.restitution == restitution) {
+                defHits++;
+                return fixtureDef;
+            }
+        }
+        defMisses++;
+        FixtureDef fixtureDef = Box2DUtils.createFixtureDef(boxShape, density, friction, restitution);
+        fixtureDefs.add(fixtureDef);
+        return fixtureDef;
+    }
+
+    public int getDefHits() {
+        return defHits;
+    }
+
+    public int getDefMisses() {
+        return defMisses;
+    }
+
+    public long getFixturesCreated() {
+        return fixturesCreated;
+    }
+
+    public void dispose() {
+        boxShape.dispose();
+    }
+}
@@ -0,0 +1,90 @@
+package org.latinschool;
+
+/**
+ * Multi-octave {@link Noise#noise2} with configurable octaves, lacunarity, gain and octave shaping.
+ * Octave seeds, frequencies and weights are computed once up front. Results are normalized to roughly [-1, 1].
+ */
+public class FractalNoise {
+    public enum Mode {
+        FBM,    // Plain sum of octaves
+        BILLOW, // Folded octaves, puffy rounded shapes
+        RIDGED  // Inverted folded octaves, sharp ridges and tunnels
+    }
+
+    private final Mode mode;
+    private final long[] seeds;
+    private final double[] frequencies;
+    private final float[] weights; // Octave amplitudes, normalized to sum to 1
+    private final float[] remaining; // [i], the most octaves i and up can still add or remove
+
+    public FractalNoise(long seed, double frequency, int octaves, double lacunarity, float gain, Mode mode) {
+        if (octaves < 1) {
+            throw new IllegalArgumentException("octaves must be at least 1");
+        }
+        this.mode = mode;
+        this.seeds = new long[octaves];
+        this.frequencies = new double[octaves];
+        this.weights = new float[octaves];
+        this.remaining = new float[octaves + 1];
+
+        float amplitude = 1.0f;
+        float totalAmplitude = 0.0f;
+        for (int i = 0; i < octaves; i++) {
+            seeds[i] = seed + i;
+            frequencies[i] = frequency * Math.pow(lacunarity, i);
+            weights[i] = amplitude;
+            totalAmplitude += amplitude;
+            amplitude *= gain;
+        }
+        for (int i = octaves - 1; i >= 0; i--) {
+            weights[i] /= totalAmplitude;
+            remaining[i] = remaining[i + 1] + weights[i];
+        }
+    }
+
+    public float sample(double x, double y) {
+        float sum = 0.0f;
+        for (int i = 0; i < seeds.length; i++) {
+            sum += weights[i] * octave(i, x, y);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns whether sample(x, y) is above the threshold, stopping as soon as the remaining octaves
+     * can no longer move the running sum across it.
+     */
+    public boolean exceeds(double x, double y, float threshold) {
+        float sum = 0.0f;
+        for (int i = 0; i < seeds.length; i++) {
+            if (sum - remaining[i] > threshold) {
+                return true;
+            }
+            if (sum + remaining[i] <= threshold) {
+                return false;
+            }
+            sum += weights[i] * octave(i, x, y);
+        }
+        return sum > threshold;
+    }
+
+    private float octave(int i, double x, double y) {
+        float noise = Noise.noise2(seeds[i], x * frequencies[i], y * frequencies[i]);
+        switch (mode) {
+            case BILLOW:
+                return Math.abs(noise) * 2.0f - 1.0f;
+            case RIDGED:
+                float ridge = 1.0f - Math.abs(noise);
+                return ridge * ridge * 2.0f - 1.0f;
+            default:
+                return noise;
+        }
+    }
+
+    /**
+     * Caves wherever the fractal value is above the threshold.
+     */
+    public CaveFunction asCaveFunction(float threshold) {
+        return (x, y) -> exceeds(x, y, threshold);
+    }
+}
@@ -0,0 +1,144 @@
+package org.latinschool;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Nanosecond timings of the frame phases, kept in one ring buffer per phase.
+ * Each phase has a single writer, which publishes a sample by bumping the phase's count with an ordered write,
+ * so recording takes no locks and allocates nothing. Readers compute p50/p99/max over the buffered samples.
+ */
+public class FrameProfiler {
+    public enum Phase {
+        FRAME("frame", 0),
+        INPUT("input", 1),
+        LOGIC("logic", 1),
+        COLLIDERS("colliders", 2),
+        PHYSICS("physics step", 2),
+        TERRAIN("terrain update", 2),
+        PLAYER("player update", 2),
+        DRAW("draw", 1),
+        DRAW_TERRAIN("terrain", 2),
+        DRAW_PLAYER("player", 2);
+
+        private final String label;
+        private final int depth;
+
+        Phase(String label, int depth) {
+            this.label = label;
+            this.depth = depth;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final int capacity;
+    private final long[][] samples; // [phase][count % capacity]
+    private final AtomicLongArray counts; // Samples ever recorded per phase
+    private volatile boolean enabled = true;
+
+    // Stats of the last computeStats call
+    private final long[] scratch;
+    private final long[] p50;
+    private final long[] p99;
+    private final long[] max;
+    private final int[] sampleCounts;
+
+    public FrameProfiler(int capacity) {
+        this.capacity = capacity;
+        this.samples = new long[PHASES.length][capacity];
+        this.counts = new AtomicLongArray(PHASES.length);
+        this.scratch = new long[capacity];
+        this.p50 = new long[PHASES.length];
+        this.p99 = new long[PHASES.length];
+        this.max = new long[PHASES.length];
+        this.sampleCounts = new int[PHASES.length];
+    }
+
+    /**
+     * Returns the start time to pass to {@link #record}, or 0 while disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void record(Phase phase, long start) {
+        if (start == 0L) {
+            return;
+        }
+        int p = phase.ordinal();
+        long count = counts.get(p);
+        samples[p][(int) (count % capacity)] = System.nanoTime() - start;
+        counts.lazySet(p, count + 1);
+    }
+
+    /**
+     * Recomputes p50, p99 and max of every phase over the samples currently buffered.
+     */
+    public void computeStats() {
+        for (Phase phase : PHASES) {
+            int p = phase.ordinal();
+            int n = (int) Math.min(counts.get(p), capacity);
+            System.arraycopy(samples[p], 0, scratch, 0, n);
+            Arrays.sort(scratch, 0, n);
+            sampleCounts[p] = n;
+            p50[p] = n > 0 ? scratch[(n - 1) / 2] : 0L;
+            p99[p] = n > 0 ? scratch[(int) ((n - 1) * 0.99)] : 0L;
+            max[p] = n > 0 ? scratch[n - 1] : 0L;
+        }
+    }
+
+    public long getP50(Phase phase) {
+        return p50[phase.ordinal()];
+    }
+
+    public long getP99(Phase phase) {
+        return p99[phase.ordinal()];
+    }
+
+    public long getMax(Phase phase) {
+        return max[phase.ordinal()];
+    }
+
+    public int getSampleCount(Phase phase) {
+        return sampleCounts[phase.ordinal()];
+    }
+
+    /**
+     * Writes the stats of every phase followed by its buffered samples, oldest first, as CSV.
+     */
+    public void dump(StringBuilder out) {
+        computeStats();
+        out.append("phase,p50_ns,p99_ns,max_ns,samples\n");
+        for (Phase phase : PHASES) {
+            out.append(phase.name()).append(',').append(getP50(phase)).append(',').append(getP99(phase))
+                .append(',').append(getMax(phase)).append(',').append(getSampleCount(phase)).append('\n');
+        }
+        out.append('\n');
+        for (Phase phase : PHASES) {
+            int p = phase.ordinal();
+            long count = counts.get(p);
+            out.append(phase.name());
+            for (long i = Math.max(0, count - capacity); i < count; i++) {
+                out.append(',').append(samples[p][(int) (i % capacity)]);
+            }
+            out.append('\n');
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,153 @@
+package org.latinschool;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * Resolves bodies against the terrain grid directly. After each physics step the body's box is swept
+ * from its previous position along x, then along y, through every cell it crosses, and stopped at the first
+ * solid cell face. Blocked velocity is removed. On landing, horizontal speed is cut by FRICTION times the
+ * vertical speed removed, a rough stand-in for the friction Box2D's contact solver would apply.
+ * Hitting a ceiling or a wall applies none.
+ * Builds no fixtures, so the terrain adds nothing to the Box2D world.
+ */
+public class GridCollision implements TerrainCollision {
+    private static final float EPSILON = 1e-4f; // Keeps a box resting on a face from counting as inside the cell
+
+    private final TerrainStore store;
+
+    public GridCollision(TerrainStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Nothing to rebuild, the grid is read as it is.
+     */
+    @Override
+    public void update() {
+    }
+
+    @Override
+    public void rowCycled(int storageRow) {
+    }
+
+    @Override
+    public void resolve(Body body, float halfWidth, float halfHeight, float fromX, float fromY) {
+        Vector2 position = body.getPosition();
+        float targetX = position.x;
+        float targetY = position.y;
+
+        float x = sweepX(fromX, fromY, halfWidth, halfHeight, targetX - fromX);
+        float y = sweepY(x, fromY, halfWidth, halfHeight, targetY - fromY);
+        if (x == targetX && y == targetY) {
+            return;
+        }
+
+        Vector2 velocity = body.getLinearVelocity();
+        float velocityX = velocity.x;
+        float velocityY = velocity.y;
+        if (x != targetX) {
+            velocityX = 0.0f;
+        }
+        if (y > targetY && velocityY < 0.0f) {
+            // Landed, the floor pushed back against the fall
+            float friction = TerrainColliders.FRICTION * -velocityY;
+            velocityX = Math.signum(velocityX) * Math.max(0.0f, Math.abs(velocityX) - friction);
+        }
+        if (y != targetY) {
+            velocityY = 0.0f;
+        }
+        body.setTransform(x, y, body.getAngle());
+        body.setLinearVelocity(velocityX, velocityY);
+    }
+
+    /**
+     * Returns x + dx, or the x at which the box's leading side meets the first solid column in the way.
+     */
+    private float sweepX(float x, float y, float halfWidth, float halfHeight, float dx) {
+        if (dx == 0.0f) {
+            return x;
+        }
+        int topRow = store.getRowAt(y + halfHeight - EPSILON);
+        int bottomRow = store.getRowAt(y - halfHeight + EPSILON);
+        float blockSize = store.getBlockSize();
+        if (dx > 0.0f) {
+            int endCol = store.getColumnAt(x + halfWidth + dx);
+            for (int col = store.getColumnAt(x + halfWidth - EPSILON) + 1; col <= endCol; col++) {
+                if (isColumnSolid(col, topRow, bottomRow)) {
+                    return store.getOriginX() + col * blockSize - halfWidth;
+                }
+            }
+        } else {
+            int endCol = store.getColumnAt(x - halfWidth + dx);
+            for (int col = store.getColumnAt(x - halfWidth + EPSILON) - 1; col >= endCol; col--) {
+                if (isColumnSolid(col, topRow, bottomRow)) {
+                    return store.getOriginX() + (col + 1) * blockSize + halfWidth;
+                }
+            }
+        }
+        return x + dx;
+    }
+
+    /**
+     * Returns y + dy, or the y at which the box's leading side meets the first solid row in the way.
+     * Logical rows count downwards, so falling walks rows upwards in index.
+     */
+    private float sweepY(float x, float y, float halfWidth, float halfHeight, float dy) {
+        if (dy == 0.0f) {
+            return y;
+        }
+        int firstCol = store.getColumnAt(x - halfWidth + EPSILON);
+        int lastCol = store.getColumnAt(x + halfWidth - EPSILON);
+        float halfBlock = store.getBlockSize() / 2;
+        if (dy < 0.0f) {
+            int endRow = store.getRowAt(y - halfHeight + dy);
+            for (int row = store.getRowAt(y - halfHeight + EPSILON) + 1; row <= endRow; row++) {
+                if (isRowSolid(row, firstCol, lastCol)) {
+                    return store.getRowY(row) + halfBlock + halfHeight;
+                }
+            }
+        } else {
+            int endRow = store.getRowAt(y + halfHeight + dy);
+            for (int row = store.getRowAt(y + halfHeight - EPSILON) - 1; row >= endRow; row--) {
+                if (isRowSolid(row, firstCol, lastCol)) {
+                    return store.getRowY(row) - halfBlock - halfHeight;
+                }
+            }
+        }
+        return y + dy;
+    }
+
+    private boolean isColumnSolid(int col, int topRow, int bottomRow) {
+        for (int row = topRow; row <= bottomRow; row++) {
+            if (isSolid(row, col)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRowSolid(int row, int firstCol, int lastCol) {
+        for (int col = firstCol; col <= lastCol; col++) {
+            if (isSolid(row, col)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cells outside the stored rows and columns are open, the world bounds are still Box2D fixtures.
+     */
+    private boolean isSolid(int row, int col) {
+        if (row < 0 || row >= store.getRows() || col < 0 || col >= store.getColumns()) {
+            return false;
+        }
+        return store.isSolid(store.getIndex(row, col));
+    }
+
+    @Override
+    public int getFixtureCount() {
+        return 0;
+    }
+}
@@ -1,32 +1,64 @@
 package org.latinschool;
 
 import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 
+import java.nio.file.Path;
 import java.util.Random;
 
 public class Main extends ApplicationAdapter {
+    private static final Color BACKGROUND = new Color(0.15f, 0.15f, 0.2f, 1f);
+    private static final int PROFILER_SAMPLES = 600; // Ten seconds at 60 fps
+    private static final float TIME_STEP = 1f / 60;
+    private static final int MAX_SUBSTEPS = 5;
+    private static final float MAX_FRAME_TIME = 0.25f; // Longer frames, e.g. after a stall, are clamped
+    private static final boolean THREADED_SIMULATION = Boolean.getBoolean("simulation.threaded");
+    private static final boolean GRID_COLLISION = Boolean.getBoolean("terrain.gridCollision");
+    private static final int TERRAIN_RESOLUTION = 15;
+
     public static Camera camera;
     public static Viewport viewport;
     public static ProceduralTerrain terrain;
     public static ShapeRenderer shapeRenderer;
     public static World physicsWorld;
+    public static FixturePool fixturePool;
     public static Player player;
+    public static FrameProfiler profiler;
 
     private Box2DDebugRenderer box2DDebugRenderer;
     private Body bounds;
+    private ProfilerOverlay profilerOverlay;
+    private float accumulator = 0.0f; // Real time not yet simulated
+
+    private Path saveDirectory;
+    private long seed;
+    private SaveState savedState; // Null when starting a new world
+
+    // Threaded simulation, see startSimulationThread
+    private Camera renderCamera; // Same as camera unless the simulation runs on its own thread
+    private SimulationThread simulationThread;
+    private StateExchange<PlayerInput> inputs;
+    private StateExchange<RenderSnapshot> snapshots;
 
     @Override
     public void create() {
         initGlobals();
         createBounds();
+        if (THREADED_SIMULATION) {
+            startSimulationThread();
+        }
     }
 
     private void initGlobals() {
@@ -37,18 +69,30 @@ public class Main extends ApplicationAdapter {
     }
 
     private void initRendering(float worldWidth, float worldHeight) {
-        camera = new OrthographicCamera();
-        camera.position.set(worldWidth / 2, worldHeight / 2, 0);
-        camera.update();
+        camera = createCamera(worldWidth, worldHeight);
+        renderCamera = THREADED_SIMULATION ? createCamera(worldWidth, worldHeight) : camera;
 
-        viewport = new FitViewport(worldWidth, worldHeight, camera);
+        viewport = new FitViewport(worldWidth, worldHeight, renderCamera);
         viewport.apply();
 
         shapeRenderer = new ShapeRenderer();
+
+        profiler = new FrameProfiler(PROFILER_SAMPLES);
+        profilerOverlay = new ProfilerOverlay(profiler);
+    }
+
+    private Camera createCamera(float worldWidth, float worldHeight) {
+        Camera camera = new OrthographicCamera();
+        camera.viewportWidth = worldWidth;
+        camera.viewportHeight = worldHeight;
+        camera.position.set(worldWidth / 2, worldHeight / 2, 0);
+        camera.update();
+        return camera;
     }
 
     private void initPhysics() {
         physicsWorld = new World(new Vector2(0.0f, -9.8f), true);
+        fixturePool = new FixturePool(physicsWorld);
         box2DDebugRenderer = new Box2DDebugRenderer();
     }
 
@@ -73,17 +117,25 @@ public class Main extends ApplicationAdapter {
     }
 
     private void initTerrain() {
+        saveDirectory = Gdx.files.local("saves/terrain").file().toPath();
+        seed = TerrainRegionFile.readSeed(saveDirectory, TERRAIN_RESOLUTION, new Random().nextLong());
+        savedState = SaveState.read(saveDirectory, TERRAIN_RESOLUTION, seed);
         terrain = new ProceduralTerrain(
             new Vector2(0, camera.position.y),
-            15,
+            TERRAIN_RESOLUTION,
             0.025f,
             new Color[]{Color.GREEN, Color.BROWN, Color.GRAY, Color.DARK_GRAY}, // Layers
             new int[]{0, 1, 5, 20}, // Layer thresholds
             new float[]{10.0f, 10.0f, 25.0f, 50.0f}, // Layer healths
             new Color[]{Color.GRAY, Color.DARK_GRAY}, // Cave layers
-            0.5f,
-            0.1f,
-            new Random().nextLong()
+            new NoiseCaves(seed, 0.1f, 0.5f), // Caves, a FractalNoise.asCaveFunction also fits here
+            seed,
+            8, // Chunk rows
+            2, // Look-ahead chunks
+            6, // Max resident chunks
+            saveDirectory,
+            savedState != null ? savedState.topRow : 0, // Start row, resumes at the saved depth
+            GRID_COLLISION // Resolve the player against the grid instead of Box2D terrain fixtures
         );
     }
 
@@ -94,39 +146,204 @@ public class Main extends ApplicationAdapter {
             1.5f, 0.5f,
             true, 10.0f, 10.0f
         );
+        if (savedState != null) {
+            player.restore(savedState);
+            camera.position.y = savedState.cameraY;
+            camera.update();
+        }
+    }
+
+    /**
+     * Moves physics, terrain streaming and player logic onto their own thread, enabled with -Dsimulation.threaded=true.
+     * From then on that thread owns the world, the terrain and the simulation camera. The render thread hands it
+     * sampled input and draws the newest published {@link RenderSnapshot} through its own camera.
+     */
+    private void startSimulationThread() {
+        inputs = new StateExchange<>(PlayerInput::new);
+        snapshots = new StateExchange<>(RenderSnapshot::new);
+        simulationThread = new SimulationThread(this::simulate, TIME_STEP);
+        simulationThread.start();
+    }
+
+    /**
+     * Rethrows on the render thread whatever stopped the simulation thread, rather than drawing its last state forever.
+     */
+    private void checkSimulationThread() {
+        Throwable failure = simulationThread.getFailure();
+        if (failure != null) {
+            Gdx.app.error("Simulation", "Simulation thread stopped", failure);
+            throw new GdxRuntimeException("Simulation thread stopped", failure);
+        }
+    }
+
+    private void simulate(float deltaTime) {
+        PlayerInput input = inputs.acquire();
+        if (input != null) {
+            player.applyInput(input, deltaTime);
+        }
+
+        long start = profiler.start();
+        logic(deltaTime);
+        profiler.record(FrameProfiler.Phase.LOGIC, start);
+
+        RenderSnapshot snapshot = snapshots.getWriteBuffer();
+        terrain.captureMesh(snapshot);
+        player.capture(snapshot);
+        snapshot.cameraY = camera.position.y;
+        snapshots.publish();
     }
 
     @Override
     public void render() {
+        long frameStart = profiler.start();
+        long start = profiler.start();
         input();
-        logic();
-        draw();
+        profiler.record(FrameProfiler.Phase.INPUT, start);
+
+        if (simulationThread == null) {
+            start = profiler.start();
+            logic(Gdx.graphics.getDeltaTime());
+            profiler.record(FrameProfiler.Phase.LOGIC, start);
+
+            start = profiler.start();
+            draw();
+            profiler.record(FrameProfiler.Phase.DRAW, start);
+        } else {
+            checkSimulationThread();
+            start = profiler.start();
+            drawSnapshot();
+            profiler.record(FrameProfiler.Phase.DRAW, start);
+        }
+        profiler.record(FrameProfiler.Phase.FRAME, frameStart);
+
+        profilerOverlay.draw();
     }
 
     private void input() {
-        player.input();
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
+            profilerOverlay.toggle();
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F4)) {
+            dumpProfile();
+        }
+        if (simulationThread == null) {
+            player.input();
+        } else {
+            player.sampleInput(inputs.getWriteBuffer());
+            inputs.publish();
+        }
     }
 
-    private void logic() {
-        viewport.apply();
-        physicsWorld.step(1f / 60, 6, 2);
+    private void logic(float deltaTime) {
+        long start = profiler.start();
+        terrain.updateColliders();
+        profiler.record(FrameProfiler.Phase.COLLIDERS, start);
+
+        start = profiler.start();
+        stepPhysics(deltaTime);
+        profiler.record(FrameProfiler.Phase.PHYSICS, start);
+
+        start = profiler.start();
         terrain.update();
+        profiler.record(FrameProfiler.Phase.TERRAIN, start);
+
+        start = profiler.start();
         player.update();
+        profiler.record(FrameProfiler.Phase.PLAYER, start);
+
         bounds.setTransform(bounds.getPosition().x, camera.position.y, bounds.getAngle());
     }
 
+    /**
+     * Advances the world in fixed steps covering the real frame time, at most MAX_SUBSTEPS per frame.
+     * Time the cap leaves over is dropped instead of carried, so a slow frame can't snowball into the next.
+     */
+    private void stepPhysics(float deltaTime) {
+        accumulator += Math.min(deltaTime, MAX_FRAME_TIME);
+        int steps = 0;
+        while (accumulator >= TIME_STEP && steps < MAX_SUBSTEPS) {
+            player.beforeStep();
+            physicsWorld.step(TIME_STEP, 6, 2);
+            player.afterStep();
+            accumulator -= TIME_STEP;
+            steps++;
+        }
+        if (accumulator >= TIME_STEP) {
+            accumulator %= TIME_STEP;
+        }
+        player.interpolate(accumulator / TIME_STEP);
+    }
+
     private void draw() {
+        viewport.apply();
         shapeRenderer.setProjectionMatrix(camera.combined);
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
 
-        clearViewport(new Color(0.15f, 0.15f, 0.2f, 1f));
+        clearViewport(camera, BACKGROUND);
+        shapeRenderer.end();
+
+        long start = profiler.start();
         terrain.draw();
+        profiler.record(FrameProfiler.Phase.DRAW_TERRAIN, start);
+
+        start = profiler.start();
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
         player.draw();
         shapeRenderer.end();
+        profiler.record(FrameProfiler.Phase.DRAW_PLAYER, start);
     }
 
+    private void drawSnapshot() {
+        RenderSnapshot snapshot = snapshots.acquire();
+        if (snapshot == null) {
+            return; // Nothing simulated yet
+        }
+        renderCamera.position.y = snapshot.cameraY;
+        viewport.apply();
+        shapeRenderer.setProjectionMatrix(renderCamera.combined);
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+
+        clearViewport(renderCamera, BACKGROUND);
+        shapeRenderer.end();
+
+        long start = profiler.start();
+        terrain.drawSnapshot(renderCamera, snapshot);
+        profiler.record(FrameProfiler.Phase.DRAW_TERRAIN, start);
+
+        start = profiler.start();
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        Player.draw(snapshot);
+        shapeRenderer.end();
+        profiler.record(FrameProfiler.Phase.DRAW_PLAYER, start);
+    }
+
+    /**
+     * Saves the depth, camera and player for the next start. Once the player has died the whole world is
+     * forgotten, rows included, so the next start is a new world with a new seed. Called after the terrain
+     * has written its rows.
+     */
+    private void saveState() {
+        if (player.getHeath() <= 0.0f) {
+            SaveState.delete(saveDirectory);
+            TerrainRegionFile.delete(saveDirectory);
+            return;
+        }
+        SaveState state = new SaveState();
+        state.topRow = terrain.getScore();
+        state.cameraY = camera.position.y;
+        player.save(state);
+        state.write(saveDirectory, TERRAIN_RESOLUTION, seed);
+    }
+
+    private void dumpProfile() {
+        StringBuilder out = new StringBuilder();
+        profiler.dump(out);
+        FileHandle file = Gdx.files.local("profiles/frames-" + TimeUtils.millis() + ".csv");
+        file.writeString(out.toString(), false);
+        Gdx.app.log("Profiler", "Frame profile written to " + file.path());
+    }
 
-    private void clearViewport(Color color) {
+    private void clearViewport(Camera camera, Color color) {
         float halfWidth = camera.viewportWidth / 2;
         float halfHeight = camera.viewportHeight / 2;
         float x = camera.position.x - halfWidth;
@@ -142,7 +359,14 @@ public class Main extends ApplicationAdapter {
 
     @Override
     public void dispose() {
+        if (simulationThread != null) {
+            simulationThread.shutdown();
+        }
+        terrain.dispose();
+        saveState();
         shapeRenderer.dispose();
+        profilerOverlay.dispose();
+        fixturePool.dispose();
         physicsWorld.dispose();
     }
 }
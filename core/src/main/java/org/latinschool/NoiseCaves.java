@@ -0,0 +1,34 @@
+package org.latinschool;
+
+import java.util.BitSet;
+
+/**
+ * Single octave of {@link Noise#noise2} thresholded at a fixed value.
+ */
+public class NoiseCaves implements CaveFunction {
+    private final long seed;
+    private final double scale;
+    private final float threshold;
+
+    public NoiseCaves(long seed, double scale, float threshold) {
+        this.seed = seed;
+        this.scale = scale;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean isCave(double x, double y) {
+        return Noise.noise2(seed, x * scale, y * scale) > threshold;
+    }
+
+    @Override
+    public void fillRow(double x, double y, double dx, int count, BitSet out) {
+        float[] noise = new float[count];
+        Noise.noise2Row(seed, x * scale, y * scale, dx * scale, count, noise, 0);
+        for (int i = 0; i < count; i++) {
+            if (noise[i] > threshold) {
+                out.set(i);
+            }
+        }
+    }
+}
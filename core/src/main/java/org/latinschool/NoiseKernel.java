@@ -0,0 +1,22 @@
+package org.latinschool;
+
+/**
+ * Evaluates {@link Noise} for many points per call.
+ * Implementations must match the scalar {@link Noise} functions for every sample.
+ */
+public interface NoiseKernel {
+    /**
+     * Samples evaluated together per step, 1 for the scalar kernel.
+     */
+    int lanes();
+
+    /**
+     * Writes noise2(seed, x[i], y[i]) to out[i] for i in [0, count).
+     */
+    void noise2(long seed, double[] x, double[] y, float[] out, int count);
+
+    /**
+     * Writes noise3_ImproveXY(seed, x[i], y[i], z[i]) to out[i] for i in [0, count).
+     */
+    void noise3_ImproveXY(long seed, double[] x, double[] y, double[] z, float[] out, int count);
+}
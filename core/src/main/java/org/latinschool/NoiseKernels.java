@@ -0,0 +1,80 @@
+package org.latinschool;
+
+import java.util.Random;
+
+/**
+ * Picks the {@link NoiseKernel} used for batch noise. The Vector API kernel is opt-in: it is only built on JDK 17+,
+ * and is used when the JVM runs with -Dnoise.vector=true and --add-modules jdk.incubator.vector.
+ * Even then it is only selected after it reproduces the scalar results on a set of probe points.
+ * On the JDK 17 incubator its gathers and cross-width conversions made it slower than the scalar path,
+ * so compare both with the benchmarks before turning it on.
+ */
+public final class NoiseKernels {
+    private static final String VECTOR_KERNEL_CLASS = "org.latinschool.VectorNoiseKernel";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final float MAX_ERROR = 1e-6f;
+    private static final int PROBE_COUNT = 257; // Not a multiple of any lane count, so the tail path is probed too
+
+    private static final NoiseKernel SCALAR = new ScalarNoiseKernel();
+    private static final NoiseKernel SELECTED = select();
+
+    private NoiseKernels() {
+    }
+
+    public static NoiseKernel get() {
+        return SELECTED;
+    }
+
+    public static NoiseKernel scalar() {
+        return SCALAR;
+    }
+
+    public static boolean isVectorized() {
+        return SELECTED != SCALAR;
+    }
+
+    private static NoiseKernel select() {
+        if (!Boolean.getBoolean("noise.vector") || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            NoiseKernel vector = (NoiseKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+            return matchesScalar(vector) ? vector : SCALAR;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return SCALAR;
+        }
+    }
+
+    private static boolean matchesScalar(NoiseKernel kernel) {
+        Random random = new Random(0x5EED);
+        double[] x = new double[PROBE_COUNT];
+        double[] y = new double[PROBE_COUNT];
+        double[] z = new double[PROBE_COUNT];
+        for (int i = 0; i < PROBE_COUNT; i++) {
+            x[i] = (random.nextDouble() - 0.5) * 2000.0;
+            y[i] = (random.nextDouble() - 0.5) * 2000.0;
+            z[i] = (random.nextDouble() - 0.5) * 2000.0;
+        }
+        long seed = random.nextLong();
+
+        float[] expected = new float[PROBE_COUNT];
+        float[] actual = new float[PROBE_COUNT];
+        SCALAR.noise2(seed, x, y, expected, PROBE_COUNT);
+        kernel.noise2(seed, x, y, actual, PROBE_COUNT);
+        if (!withinError(expected, actual)) {
+            return false;
+        }
+        SCALAR.noise3_ImproveXY(seed, x, y, z, expected, PROBE_COUNT);
+        kernel.noise3_ImproveXY(seed, x, y, z, actual, PROBE_COUNT);
+        return withinError(expected, actual);
+    }
+
+    private static boolean withinError(float[] expected, float[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (!(Math.abs(expected[i] - actual[i]) <= MAX_ERROR)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
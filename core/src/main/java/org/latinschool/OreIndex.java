@@ -0,0 +1,86 @@
+package org.latinschool;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+import static com.badlogic.gdx.math.MathUtils.floor;
+
+/**
+ * Uniform spatial hash of ore positions. Cells are as wide as the minimum ore distance,
+ * so a distance check only has to look at the 3x3 block of cells around a point.
+ */
+public class OreIndex {
+    private final float cellSize;
+    private final LongMap<Array<Vector2>> cells = new LongMap<>();
+    private int size = 0;
+
+    public OreIndex(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void add(Vector2 position) {
+        long key = key(floor(position.x / cellSize), floor(position.y / cellSize));
+        Array<Vector2> cell = cells.get(key);
+        if (cell == null) {
+            cell = new Array<>(false, 4);
+            cells.put(key, cell);
+        }
+        cell.add(position);
+        size++;
+    }
+
+    public boolean hasOreWithin(Vector2 position, float distance) {
+        int cellX = floor(position.x / cellSize);
+        int cellY = floor(position.y / cellSize);
+        for (int y = cellY - 1; y <= cellY + 1; y++) {
+            for (int x = cellX - 1; x <= cellX + 1; x++) {
+                Array<Vector2> cell = cells.get(key(x, y));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    if (cell.get(i).dst(position) < distance) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every ore at or above the given height. Cells entirely above it are dropped whole,
+     * only the cells straddling it are filtered.
+     */
+    public void prune(float y) {
+        LongMap.Entries<Array<Vector2>> entries = cells.entries();
+        while (entries.hasNext()) {
+            LongMap.Entry<Array<Vector2>> entry = entries.next();
+            float cellBottom = (int) entry.key * cellSize;
+            Array<Vector2> cell = entry.value;
+            if (cellBottom >= y) {
+                size -= cell.size;
+                entries.remove();
+            } else if (cellBottom + cellSize > y) {
+                for (int i = cell.size - 1; i >= 0; i--) {
+                    if (cell.get(i).y >= y) {
+                        cell.removeIndex(i);
+                        size--;
+                    }
+                }
+                if (cell.isEmpty()) {
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+}
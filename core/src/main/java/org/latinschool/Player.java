@@ -8,6 +8,8 @@ import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.*;
 
 public class Player {
+    private static final int HEALTH_SHADES = 20;
+
     private final Body body;
     private final float width;
     private final float height;
@@ -25,6 +27,20 @@ public class Player {
     private boolean isGrounded = false;
     private Block targetedBlock;
 
+    // Movement sampled by input and applied on every physics step
+    private int moveDirection = 0;
+    private boolean isSprinting = false;
+    private boolean isCrouching = false;
+    private boolean jumpRequested = false;
+    private long sampledJumpPresses = 0; // Render thread
+    private long appliedJumpPresses = 0; // Simulation thread
+    private final PlayerInput input = new PlayerInput(); // Used when sampling and applying on one thread
+
+    private final Vector2 previousPosition = new Vector2(); // Body position before the last physics step
+    private final Vector2 renderPosition = new Vector2(); // Interpolated between the last two steps
+    private final RenderSnapshot snapshot = new RenderSnapshot(); // Used when drawing on the simulation's own thread
+    private final ShadePalette palette = new ShadePalette(new Color[]{Color.TEAL}, HEALTH_SHADES, 0.0f);
+
     public Player(Vector2 position, float width, float height, float speed, float acceleration,
                   float jumpForce, float sprintMultiplier, float crouchMultiplier, boolean useFollowCam,
                   float mineSpeed, float baseHealth) {
@@ -40,6 +56,8 @@ public class Player {
         this.baseHealth = baseHealth;
         this.health = baseHealth;
         this.body = createPlayerBody(position);
+        this.previousPosition.set(position);
+        this.renderPosition.set(position);
     }
 
     private Body createPlayerBody(Vector2 position) {
@@ -52,27 +70,59 @@ public class Player {
         return body;
     }
 
+    /**
+     * Samples and applies the controls on the calling thread.
+     */
     public void input() {
-        boolean isSprinting = Gdx.input.isKeyPressed(Input.Keys.SHIFT_LEFT);
-        boolean isCrouching = Gdx.input.isKeyPressed(Input.Keys.C);
+        sampleInput(input);
+        applyInput(input, Gdx.graphics.getDeltaTime());
+    }
 
-        float appliedAcceleration = applyMultiplier(acceleration, isSprinting, isCrouching, isGrounded);
-        float appliedSpeed = applyMultiplier(speed, isSprinting, isCrouching, isGrounded);
+    /**
+     * Reads the keyboard and mouse into out. Render thread only, since it reads Gdx.input and the viewport.
+     */
+    public void sampleInput(PlayerInput out) {
+        out.sprinting = Gdx.input.isKeyPressed(Input.Keys.SHIFT_LEFT);
+        out.crouching = Gdx.input.isKeyPressed(Input.Keys.C);
+        out.moveDirection = 0;
+        if (Gdx.input.isKeyPressed(Input.Keys.A)) {
+            out.moveDirection--;
+        }
+        if (Gdx.input.isKeyPressed(Input.Keys.D)) {
+            out.moveDirection++;
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) {
+            sampledJumpPresses++;
+        }
+        out.jumpPresses = sampledJumpPresses;
+        out.mining = Gdx.input.isButtonPressed(Input.Buttons.LEFT);
 
-        handleMovement(appliedAcceleration, isGrounded);
-        if (isGrounded) {
-            capVelocity(appliedSpeed);
+        Vector2 mouseWorldPos = getMouseWorldPosition();
+        out.aimX = mouseWorldPos.x;
+        out.aimY = mouseWorldPos.y;
+    }
+
+    /**
+     * Applies sampled controls on the simulation thread: movement for the next physics steps, targeting and mining.
+     */
+    public void applyInput(PlayerInput in, float deltaTime) {
+        isSprinting = in.sprinting;
+        isCrouching = in.crouching;
+        moveDirection = in.moveDirection;
+        if (in.jumpPresses > appliedJumpPresses) {
+            jumpRequested = true;
+            appliedJumpPresses = in.jumpPresses;
         }
 
         if (health <= 0.0f) {
             targetedBlock = null;
         } else {
-            targetedBlock = getTargetedBlock(1.5f);
+            targetedBlock = getTargetedBlock(in.aimX, in.aimY, 1.5f);
         }
-        if (Gdx.input.isButtonPressed(Input.Buttons.LEFT) && targetedBlock != null) {
-            targetedBlock.healthBy(-mineSpeed * Gdx.graphics.getDeltaTime());
+        if (in.mining && targetedBlock != null) {
+            targetedBlock.healthBy(-mineSpeed * deltaTime);
             if (targetedBlock.getHealth() <= 0.0f) {
-                if (targetedBlock.getColor().equals(Color.YELLOW)) {
+                if (targetedBlock.isOre()) {
                     mineSpeed += 5.0f;
                 } else {
                     mineSpeed += targetedBlock.getBaseHealth() / 10.0f;
@@ -93,16 +143,54 @@ public class Player {
         return value * 0.1f;
     }
 
-    private void handleMovement(float acceleration, boolean isGrounded) {
-        if (Gdx.input.isKeyPressed(Input.Keys.A)) {
-            body.applyForceToCenter(new Vector2(-acceleration, 0), true);
+    /**
+     * Applies the sampled movement. Called before every physics step, since Box2D clears forces after each one.
+     */
+    public void beforeStep() {
+        previousPosition.set(body.getPosition());
+
+        float appliedAcceleration = applyMultiplier(acceleration, isSprinting, isCrouching, isGrounded);
+        float appliedSpeed = applyMultiplier(speed, isSprinting, isCrouching, isGrounded);
+
+        handleMovement(appliedAcceleration, isGrounded);
+        if (isGrounded) {
+            capVelocity(appliedSpeed);
         }
-        if (Gdx.input.isKeyPressed(Input.Keys.D)) {
-            body.applyForceToCenter(new Vector2(acceleration, 0), true);
+    }
+
+    private void handleMovement(float acceleration, boolean isGrounded) {
+        if (moveDirection != 0) {
+            body.applyForceToCenter(new Vector2(acceleration * moveDirection, 0), true);
         }
-        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)  && isGrounded) {
+        if (jumpRequested && isGrounded) {
             body.applyLinearImpulse(new Vector2(0, jumpForce), body.getWorldCenter(), true);
         }
+        jumpRequested = false;
+    }
+
+    /**
+     * Detects landing and applies fall damage. Called after every physics step.
+     */
+    public void afterStep() {
+        Main.terrain.resolveCollision(body, width / 2, height / 2, previousPosition.x, previousPosition.y);
+
+        float curYVelocity = body.getLinearVelocity().y;
+        isGrounded = false;
+        if (Math.abs(curYVelocity) < 0.01f && lastYVelocity <= 0) {
+            isGrounded = true;
+            if (lastYVelocity < -10.0f) {
+                health += lastYVelocity;
+            }
+        }
+        lastYVelocity = curYVelocity;
+    }
+
+    /**
+     * Places the drawn player between the last two physics steps, alpha being the fraction of a step left over.
+     */
+    public void interpolate(float alpha) {
+        Vector2 position = body.getPosition();
+        renderPosition.set(previousPosition).lerp(position, alpha);
     }
 
     private void capVelocity(float speed) {
@@ -112,10 +200,16 @@ public class Player {
         }
     }
 
-    private Block getTargetedBlock(float maxDistance) {
+    private Block getTargetedBlock(float aimX, float aimY, float maxDistance) {
         Vector2 playerPos = body.getPosition();
-        Vector2 mouseWorldPos = getMouseWorldPosition();
-        return performRayCast(playerPos, calculateRayEnd(playerPos, mouseWorldPos, maxDistance));
+        float dx = aimX - playerPos.x;
+        float dy = aimY - playerPos.y;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        if (distance > maxDistance) {
+            dx *= maxDistance / distance;
+            dy *= maxDistance / distance;
+        }
+        return Main.terrain.rayCast(playerPos.x, playerPos.y, playerPos.x + dx, playerPos.y + dy);
     }
 
     private Vector2 getMouseWorldPosition() {
@@ -124,33 +218,6 @@ public class Player {
         return new Vector2(mousePos.x, mousePos.y);
     }
 
-    private Vector2 calculateRayEnd(Vector2 p1, Vector2 p2, float maxDistance) {
-        Vector2 direction = p2.cpy().sub(p1).nor();
-        float effectiveLength = Math.min(maxDistance, p1.dst(p2));
-        return p1.cpy().add(direction.scl(effectiveLength));
-    }
-
-    private Block performRayCast(Vector2 start, Vector2 end) {
-        final Block[] hitBlock = {null};
-        final float[] closestFraction = {1.0f};
-
-        Main.physicsWorld.rayCast((fixture, point, normal, fraction) -> {
-            if (fixture.getBody() == body) {
-                return -1.0f;
-            }
-            Object userData = fixture.getBody().getUserData();
-            if (userData instanceof Block) {
-                if (fraction < closestFraction[0]) {
-                    closestFraction[0] = fraction;
-                    hitBlock[0] = (Block) userData;
-                }
-            }
-            return 1.0f;
-        }, start, end);
-
-        return hitBlock[0];
-    }
-
     public void update() {
         if (health <= 0.0f) {
             body.setActive(false);
@@ -158,58 +225,80 @@ public class Player {
         if (useFollowCam) {
             followCam();
         }
-
-        float curYVelocity = body.getLinearVelocity().y;
-        isGrounded = false;
-        if (Math.abs(curYVelocity) < 0.01f && lastYVelocity <= 0) {
-            isGrounded = true;
-            if (lastYVelocity < -10.0f) {
-                health += lastYVelocity;
-            }
-        }
-        lastYVelocity = curYVelocity;
     }
 
 
     private void followCam() {
-        if (Main.camera.position.y > body.getPosition().y) {
-            Main.camera.position.y = body.getPosition().y;
+        if (Main.camera.position.y > renderPosition.y) {
+            Main.camera.position.y = renderPosition.y;
             Main.camera.update();
         }
     }
 
     public void draw() {
-        drawPlayer();
-        if (targetedBlock != null && targetedBlock.getColor() != null) {
-            outlineTargetedBlock();
-        }
+        capture(snapshot);
+        draw(snapshot);
     }
 
-    private void drawPlayer() {
-        Vector2 position = body.getPosition();
-        float x = position.x - width / 2;
-        float y = position.y - height / 2;
+    /**
+     * Copies what {@link #draw(RenderSnapshot)} needs into the snapshot.
+     */
+    public void capture(RenderSnapshot out) {
+        out.playerX = renderPosition.x;
+        out.playerY = renderPosition.y;
+        out.playerWidth = width;
+        out.playerHeight = height;
+        out.playerColor = palette.getColor(palette.getEntry(0, ShadePalette.getShade(health, baseHealth, HEALTH_SHADES)));
 
-        Main.shapeRenderer.setColor(getAdjustedColor(Color.TEAL, 20));
-        Main.shapeRenderer.rect(x, y, width, height);
+        out.hasTarget = targetedBlock != null && targetedBlock.getColor() != null;
+        out.outlineWidth = Main.terrain.getOutlineWidth();
+        if (out.hasTarget) {
+            out.targetX = targetedBlock.getX();
+            out.targetY = targetedBlock.getY();
+            out.targetSize = targetedBlock.getSize();
+            out.targetColor = targetedBlock.getShadedColor();
+        }
     }
 
-    private Color getAdjustedColor(Color originalColor, int steps) {
-        float stepSize = 1.0f / steps;
-        float darknessFactor = Math.max(0, Math.min(1, Math.round(health / baseHealth / stepSize) * stepSize));
-        return new Color(originalColor.r * darknessFactor, originalColor.g * darknessFactor, originalColor.b * darknessFactor, originalColor.a);
-    }
+    /**
+     * Draws the player and the outline of its targeted block from a snapshot.
+     */
+    public static void draw(RenderSnapshot snapshot) {
+        float x = snapshot.playerX - snapshot.playerWidth / 2;
+        float y = snapshot.playerY - snapshot.playerHeight / 2;
+        Main.shapeRenderer.setColor(snapshot.playerColor);
+        Main.shapeRenderer.rect(x, y, snapshot.playerWidth, snapshot.playerHeight);
 
-    private void outlineTargetedBlock() {
-        float outlineWidth = Main.terrain.getOutlineWidth();
-        targetedBlock.draw(outlineWidth, Color.WHITE, 0);
-        targetedBlock.draw(outlineWidth * 2.0f);
+        if (snapshot.hasTarget) {
+            Block.draw(snapshot.targetX, snapshot.targetY, snapshot.targetSize, snapshot.outlineWidth, Color.WHITE);
+            Block.draw(snapshot.targetX, snapshot.targetY, snapshot.targetSize, snapshot.outlineWidth * 2.0f,
+                snapshot.targetColor);
+        }
     }
 
     public boolean isGrounded() {
         return isGrounded;
     }
 
+    /**
+     * Copies what a restart needs into the save state.
+     */
+    public void save(SaveState out) {
+        Vector2 position = body.getPosition();
+        out.playerX = position.x;
+        out.playerY = position.y;
+        out.playerHealth = health;
+        out.mineSpeed = mineSpeed;
+    }
+
+    public void restore(SaveState in) {
+        body.setTransform(in.playerX, in.playerY, body.getAngle());
+        previousPosition.set(in.playerX, in.playerY);
+        renderPosition.set(in.playerX, in.playerY);
+        health = in.playerHealth;
+        mineSpeed = in.mineSpeed;
+    }
+
     public float getHeath() {
         return health;
     }
@@ -0,0 +1,14 @@
+package org.latinschool;
+
+/**
+ * Player controls sampled on the render thread, applied by whichever thread runs the simulation.
+ */
+public class PlayerInput {
+    public int moveDirection; // -1 left, 0 none, 1 right
+    public boolean sprinting;
+    public boolean crouching;
+    public boolean mining;
+    public long jumpPresses; // Running count, so presses between two simulation ticks are not lost
+    public float aimX; // Mouse position in world coordinates
+    public float aimY;
+}
@@ -1,191 +1,261 @@
 package org.latinschool;
 
+import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 import static com.badlogic.gdx.math.MathUtils.ceil;
 
 public class ProceduralTerrain {
     private float outlineWidth;
-    private Color[] layers;
-    private int[] layerThresholds;
-    private float[] layerHealths;
-    private Color[] caveLayers;
-    private float caveThreshold;
-    private float caveScale;
-    private long caveSeed;
     private final float baseBlockSize;
-    private final float minOreDistance;
-
-    private Block[][] blocks; // [row][col]
-    private final List<Vector2> orePositions = new ArrayList<>();
-    private int depth = 0;
+    private final TerrainGenerator generator;
+    private final TerrainStreamer streamer;
+    private final TerrainRegionFile regionFile; // Null when the terrain is not saved
+
+    private TerrainStore store;
+    private TerrainCollision collision;
+    private TerrainMeshBuilder meshBuilder;
+    private TerrainRenderer renderer; // Created on first draw, so the terrain can be built without a GL context
+    private Block[] blocks; // One view per storage index
+
+    private int maxRowsPerFrame;
+    private long maxCycleNanos = 2_000_000L;
+    private int rowsCycledLastFrame = 0;
+    private int pendingRows = 0;
+    private long totalRowsCycled = 0;
 
     public ProceduralTerrain(Vector2 position, int resolution, float outlineWidth, Color[] layers,
                              int[] layerThresholds, float[] layerHealths, Color[] caveLayers,
-                             float caveThreshold, float caveScale, long caveSeed) {
+                             CaveFunction caves, long seed,
+                             int chunkRows, int lookAheadChunks, int maxResidentChunks, Path saveDirectory,
+                             int startRow, boolean gridCollision) {
         this.outlineWidth = outlineWidth;
-        this.layers = layers;
-        this.layerThresholds = layerThresholds;
-        this.layerHealths = layerHealths;
-        this.caveLayers = caveLayers;
-        this.caveThreshold = caveThreshold;
-        this.caveScale = caveScale;
-        this.caveSeed = caveSeed;
         this.baseBlockSize = Main.camera.viewportWidth / resolution;
-        this.minOreDistance = baseBlockSize * 10;
+        TerrainProfile profile = new TerrainProfile(layers, layerThresholds, layerHealths, caveLayers);
+        this.generator = new TerrainGenerator(position, resolution, baseBlockSize, profile, caves, seed);
+        this.streamer = new TerrainStreamer(generator, chunkRows, lookAheadChunks, maxResidentChunks);
+        this.regionFile = saveDirectory != null ? new TerrainRegionFile(saveDirectory, resolution, seed) : null;
 
-        initBlocks(position, resolution);
+        initBlocks(position, resolution, profile, startRow, gridCollision);
     }
 
-    private void initBlocks(Vector2 position, int resolution) {
+    private void initBlocks(Vector2 position, int resolution, TerrainProfile profile, int startRow,
+                            boolean gridCollision) {
         int rows = ceil(Main.camera.viewportHeight / baseBlockSize) + 1;
 
-        blocks = new Block[rows][resolution];
+        store = new TerrainStore(rows, resolution, position, baseBlockSize, profile);
+        store.setTopRow(startRow);
+        blocks = new Block[rows * resolution];
         for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < resolution; col++) {
-                int layerIndex = getLayerIndex(row);
-                float x = position.x + (col + 0.5f) * baseBlockSize;
-                float y = position.y - (row + 0.5f) * baseBlockSize;
-                blocks[row][col] = initBlock(x, y, layerIndex);
-            }
+            fillRow(startRow + row, store.getStorageRow(row));
         }
+        for (int index = 0; index < blocks.length; index++) {
+            blocks[index] = new Block(store, index);
+        }
+        if (gridCollision) {
+            collision = new GridCollision(store);
+        } else {
+            collision = new TerrainColliders(Main.fixturePool, store, this);
+        }
+        meshBuilder = new TerrainMeshBuilder(store, outlineWidth);
+        streamer.update(getNextRow());
+        maxRowsPerFrame = rows;
     }
 
-    private Block initBlock(float x, float y, int layerIndex) {
-        Vector2 position = new Vector2(x, y);
-        Color color = calculateColor(new Vector2(x, y), layerIndex);
-        float health = layerHealths[layerIndex];
-
-        return new Block(position, color, baseBlockSize, health);
-    }
-
+    /**
+     * Cycles as many rows as the camera has moved past, up to the per-frame row and time budget.
+     * Rows left over are carried to the next frame and reported by {@link #getPendingRows()}.
+     */
     public void update() {
-        if (shouldCycle()) {
+        long start = System.nanoTime();
+        rowsCycledLastFrame = 0;
+        while (getRowsToCycle() > 0 && rowsCycledLastFrame < maxRowsPerFrame
+            && System.nanoTime() - start < maxCycleNanos) {
+            streamer.update(getNextRow());
+            if (!streamer.isRowReady(getNextRow())) {
+                break;
+            }
             cycleRow();
+            rowsCycledLastFrame++;
         }
-        System.out.println("Score: " + depth);
+        totalRowsCycled += rowsCycledLastFrame;
+        pendingRows = getRowsToCycle();
+        streamer.update(getNextRow());
     }
 
-    private boolean shouldCycle() {
-        float terrainTop = blocks[0][0].getPosition().y + baseBlockSize / 2;
-        float viewportTop = Main.camera.position.y + Main.camera.viewportHeight / 2;
-        return terrainTop - baseBlockSize >= viewportTop;
+    /**
+     * Returns the score, the depth of the top stored row. Also the startRow that resumes the terrain here.
+     */
+    public int getScore() {
+        return store.getTopRow();
     }
 
-    private void cycleRow() {
-        depth++;
-
-        float bottomRowY = blocks[blocks.length - 1][0].getPosition().y;
-        float newRowY = bottomRowY - baseBlockSize;
+    private int getRowsToCycle() {
+        float terrainTop = store.getRowY(0) + baseBlockSize / 2;
+        float viewportTop = Main.camera.position.y + Main.camera.viewportHeight / 2;
+        return Math.max(0, (int) Math.floor((terrainTop - viewportTop) / baseBlockSize));
+    }
 
-        pruneOres(blocks[0][0].getPosition().y);
+    private int getNextRow() {
+        return store.getTopRow() + store.getRows();
+    }
 
-        for (Block block : blocks[0]) {
-            int layerIndex = getLayerIndex(blocks.length + depth);
+    void cycleRow() {
+        int row = getNextRow();
+        saveRow(0);
+        int storageRow = store.cycleRow();
+        fillRow(row, storageRow);
+        collision.rowCycled(storageRow);
+    }
 
-            block.setPosition(block.getPosition().x, newRowY);
-            block.setColor(calculateColor(block.getPosition(), layerIndex));
-            block.setBaseHealth(layerHealths[layerIndex]);
+    /**
+     * Fills a storage row with its saved state if there is one, otherwise with the generated chunk.
+     */
+    private void fillRow(int row, int storageRow) {
+        if (regionFile != null && regionFile.readRow(row, store, storageRow)) {
+            return;
         }
+        store.fillRow(storageRow, streamer.getChunk(row), row);
+    }
 
-        // Shift up
-        Block[] topRow = blocks[0];
-        System.arraycopy(blocks, 1, blocks, 0, blocks.length - 1);
-        blocks[blocks.length - 1] = topRow;
+    private void saveRow(int row) {
+        if (regionFile != null) {
+            regionFile.writeRow(store.getTopRow() + row, store, store.getStorageRow(row));
+        }
     }
 
-    private void pruneOres(float y) {
-        orePositions.removeIf(position -> position.y >= y);
+    public void updateColliders() {
+        collision.update();
     }
 
+    /**
+     * See {@link TerrainCollision#resolve}.
+     */
+    public void resolveCollision(Body body, float halfWidth, float halfHeight, float fromX, float fromY) {
+        collision.resolve(body, halfWidth, halfHeight, fromX, fromY);
+    }
 
-    private Color calculateColor(Vector2 position, int layerIndex) {
-        if (isOre(position, layerIndex)) {
-            orePositions.add(position);
-            return Color.YELLOW; // Mark block as an ore
+    /**
+     * Draws the stored cells inside the camera's view, found directly from grid coordinates.
+     */
+    public void draw() {
+        if (renderer == null) {
+            renderer = new TerrainRenderer(store, meshBuilder);
         }
+        Camera camera = Main.camera;
+        renderer.draw(camera, getFirstVisibleRow(camera), getLastVisibleRow(camera),
+            getFirstVisibleColumn(camera), getLastVisibleColumn(camera));
+    }
 
+    private int getFirstVisibleRow(Camera camera) {
+        return Math.max(0, store.getRowAt(camera.position.y + camera.viewportHeight / 2));
+    }
 
-        return layers[layerIndex]; // Default layer color
+    private int getLastVisibleRow(Camera camera) {
+        return Math.min(store.getRows() - 1, store.getRowAt(camera.position.y - camera.viewportHeight / 2));
     }
 
+    private int getFirstVisibleColumn(Camera camera) {
+        return Math.max(0, store.getColumnAt(camera.position.x - camera.viewportWidth / 2));
+    }
 
-    private boolean isOre(Vector2 position, int layerIndex) {
-        for (Vector2 orePosition : orePositions) {
-            if (orePosition.dst(position) < minOreDistance) {
-                return false;
-            }
+    private int getLastVisibleColumn(Camera camera) {
+        return Math.min(store.getColumns() - 1, store.getColumnAt(camera.position.x + camera.viewportWidth / 2));
+    }
+
+    /**
+     * Brings the mesh vertices up to date and copies the rows changed since this snapshot was last written
+     * into it, with the row layout and visible window, for drawing on another thread.
+     */
+    public void captureMesh(RenderSnapshot out) {
+        meshBuilder.update();
+        if (out.terrainVertices == null) {
+            out.terrainVertices = new float[meshBuilder.getVertices().length];
+            out.terrainRowVersions = new long[store.getRows()];
+            Arrays.fill(out.terrainRowVersions, -1L);
         }
+        meshBuilder.copyChangedRows(out.terrainVertices, out.terrainRowVersions);
+        Camera camera = Main.camera;
+        out.terrainRowOffset = store.getStorageRow(0);
+        out.terrainFirstRow = getFirstVisibleRow(camera);
+        out.terrainLastRow = getLastVisibleRow(camera);
+        out.terrainFirstColumn = getFirstVisibleColumn(camera);
+        out.terrainLastColumn = getLastVisibleColumn(camera);
+    }
 
-        if (isInCave(position, layers[layerIndex])) {
-            return false;
+    /**
+     * Draws the terrain from a snapshot made by {@link #captureMesh}.
+     */
+    public void drawSnapshot(Camera camera, RenderSnapshot snapshot) {
+        if (renderer == null) {
+            renderer = new TerrainRenderer(store, meshBuilder);
         }
+        renderer.drawSnapshot(camera, snapshot);
+    }
 
-        float oreProbability = 0.25f;
-        return Math.random() < oreProbability; // Mark this block as an ore
+    /**
+     * Returns the first block the segment from (x0, y0) to (x1, y1) passes through, or null if it hits none.
+     */
+    public Block rayCast(float x0, float y0, float x1, float y1) {
+        int index = store.rayCast(x0, y0, x1, y1);
+        return index < 0 ? null : blocks[index];
     }
 
+    public void setCycleBudget(int maxRowsPerFrame, long maxCycleNanos) {
+        this.maxRowsPerFrame = maxRowsPerFrame;
+        this.maxCycleNanos = maxCycleNanos;
+    }
 
-    private int getLayerIndex(int depth) {
-        for (int i = 0; i < layers.length; i++) {
-            int threshold = layerThresholds[i];
-            int nextThreshold = (i + 1 < layerThresholds.length) ? layerThresholds[i + 1] : Integer.MAX_VALUE;
-            if (depth >= threshold && depth < nextThreshold) {
-                if (i <= 1) { // No randomness for first 2 layers
-                    return i;
-                }
-                int transitionRange = Math.max(3, Math.min(10, (nextThreshold - threshold) / 2));
-                int transitionDepth = depth - threshold;
+    public int getRowsCycledLastFrame() {
+        return rowsCycledLastFrame;
+    }
 
-                float probability = (float) transitionDepth / transitionRange;
-                return Math.random() < probability ? i: i - 1;
-            }
-        }
-        return -1;
+    public int getPendingRows() {
+        return pendingRows;
     }
 
-    public void draw() {
-        for (Block[] row : blocks) {
-            for (Block block : row) {
-                if (shouldRender(block)) {
-                    Body body = block.getBody();
-                    if (!body.isActive()) {
-                        body.setActive(true);
-                    }
-                    block.draw(outlineWidth);
-                } else {
-                    Body body = block.getBody();
-                    if (body.isActive()) {
-                        body.setActive(false);
-                    }
-                }
-            }
-        }
+    public long getTotalRowsCycled() {
+        return totalRowsCycled;
     }
 
-    private boolean shouldRender(Block block) {
-        if (block.getHealth() > 0.0f && block.getColor() != null && !isInCave(block.getPosition(), block.getColor())) {
-            return true;
-        }
-        return false;
+    public int getColliderFixtureCount() {
+        return collision.getFixtureCount();
     }
 
-    private boolean isInCave(Vector2 position, Color color) {
-        for (Color caveLayer : caveLayers) {
-            if (color.equals(caveLayer)) {
-                float noiseValue = Noise.noise2(caveSeed, position.x * caveScale, position.y * caveScale);
-                return noiseValue > caveThreshold;
-            }
-        }
-        return false;
+    public int getDrawnBlocksLastFrame() {
+        return renderer != null ? renderer.getDrawnBlocksLastFrame() : 0;
+    }
+
+    public int getCulledBlocksLastFrame() {
+        return renderer != null ? renderer.getCulledBlocksLastFrame() : 0;
+    }
+
+    /**
+     * Returns the renderer, or null before the first draw.
+     */
+    public TerrainRenderer getRenderer() {
+        return renderer;
     }
 
     public float getOutlineWidth() {
         return outlineWidth;
     }
+
+    public void dispose() {
+        if (regionFile != null) {
+            for (int row = 0; row < store.getRows(); row++) {
+                saveRow(row);
+            }
+            regionFile.close();
+        }
+        streamer.dispose();
+        if (renderer != null) {
+            renderer.dispose();
+        }
+    }
 }
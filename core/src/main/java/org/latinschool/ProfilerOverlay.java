@@ -0,0 +1,70 @@
+package org.latinschool;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+/**
+ * Screen-space table of the {@link FrameProfiler} phases. Stats are recomputed every REFRESH_FRAMES frames
+ * while the overlay is visible, and the text is built in a reused StringBuilder.
+ */
+public class ProfilerOverlay {
+    private static final int REFRESH_FRAMES = 30;
+    private static final float MARGIN = 8.0f;
+
+    private final FrameProfiler profiler;
+    private final SpriteBatch batch;
+    private final BitmapFont font;
+    private final StringBuilder line = new StringBuilder();
+    private boolean visible = false;
+    private int framesUntilRefresh = 0;
+
+    public ProfilerOverlay(FrameProfiler profiler) {
+        this.profiler = profiler;
+        this.batch = new SpriteBatch();
+        this.font = new BitmapFont();
+        font.setColor(Color.WHITE);
+    }
+
+    public void toggle() {
+        visible = !visible;
+        framesUntilRefresh = 0;
+    }
+
+    public void draw() {
+        if (!visible) {
+            return;
+        }
+        if (--framesUntilRefresh <= 0) {
+            profiler.computeStats();
+            framesUntilRefresh = REFRESH_FRAMES;
+        }
+
+        batch.getProjectionMatrix().setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        batch.begin();
+        float y = Gdx.graphics.getHeight() - MARGIN;
+        line.setLength(0);
+        line.append("phase  p50 / p99 / max (us)  ").append(Gdx.graphics.getFramesPerSecond()).append(" fps  score ")
+            .append(Main.terrain.getScore());
+        font.draw(batch, line, MARGIN, y);
+        for (FrameProfiler.Phase phase : FrameProfiler.Phase.values()) {
+            y -= font.getLineHeight();
+            line.setLength(0);
+            for (int i = 0; i < phase.getDepth(); i++) {
+                line.append("  ");
+            }
+            line.append(phase.getLabel()).append("  ")
+                .append(profiler.getP50(phase) / 1000).append(" / ")
+                .append(profiler.getP99(phase) / 1000).append(" / ")
+                .append(profiler.getMax(phase) / 1000);
+            font.draw(batch, line, MARGIN, y);
+        }
+        batch.end();
+    }
+
+    public void dispose() {
+        batch.dispose();
+        font.dispose();
+    }
+}
@@ -0,0 +1,32 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * What the render thread needs to draw one simulation state. Written by the simulation thread
+ * and published through a {@link StateExchange}, after which it is only read.
+ */
+public class RenderSnapshot {
+    public float cameraY;
+
+    public float playerX; // Centre
+    public float playerY;
+    public float playerWidth;
+    public float playerHeight;
+    public Color playerColor;
+
+    public boolean hasTarget;
+    public float targetX; // Centre
+    public float targetY;
+    public float targetSize;
+    public Color targetColor;
+    public float outlineWidth;
+
+    public float[] terrainVertices; // Copy of the terrain mesh vertices, brought up to date row by row
+    public long[] terrainRowVersions; // Mesh builder version of each storage row in terrainVertices
+    public int terrainRowOffset; // Storage row holding logical row 0
+    public int terrainFirstRow; // Visible logical rows and columns, empty when first > last
+    public int terrainLastRow;
+    public int terrainFirstColumn;
+    public int terrainLastColumn;
+}
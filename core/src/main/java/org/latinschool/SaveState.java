@@ -0,0 +1,73 @@
+package org.latinschool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Where play stopped: the terrain's depth, the camera and the player. Written next to the region files
+ * so a restart resumes at depth instead of at row 0.
+ * <p>
+ * Layout: a header (magic, columns, seed) followed by the fields in declaration order.
+ */
+public class SaveState {
+    private static final int MAGIC = 0x53544131; // "STA1"
+    private static final int SIZE = Integer.BYTES * 3 + Long.BYTES + Float.BYTES * 5;
+    private static final String FILE_NAME = "state.bin";
+
+    public int topRow; // Depth of the terrain's top row
+    public float cameraY;
+    public float playerX;
+    public float playerY;
+    public float playerHealth;
+    public float mineSpeed;
+
+    /**
+     * Returns the state saved in the directory, or null if there is none or it belongs to a different world.
+     */
+    public static SaveState read(Path directory, int columns, long seed) {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (in.remaining() < SIZE || in.getInt() != MAGIC || in.getInt() != columns || in.getLong() != seed) {
+                return null;
+            }
+            SaveState state = new SaveState();
+            state.topRow = in.getInt();
+            state.cameraY = in.getFloat();
+            state.playerX = in.getFloat();
+            state.playerY = in.getFloat();
+            state.playerHealth = in.getFloat();
+            state.mineSpeed = in.getFloat();
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void delete(Path directory) {
+        try {
+            Files.deleteIfExists(directory.resolve(FILE_NAME));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(Path directory, int columns, long seed) {
+        ByteBuffer out = ByteBuffer.allocate(SIZE);
+        out.putInt(MAGIC).putInt(columns).putLong(seed);
+        out.putInt(topRow).putFloat(cameraY).putFloat(playerX).putFloat(playerY)
+            .putFloat(playerHealth).putFloat(mineSpeed);
+        try {
+            Files.createDirectories(directory);
+            Files.write(directory.resolve(FILE_NAME), out.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.latinschool;
+
+public class ScalarNoiseKernel implements NoiseKernel {
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public void noise2(long seed, double[] x, double[] y, float[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = Noise.noise2(seed, x[i], y[i]);
+        }
+    }
+
+    @Override
+    public void noise3_ImproveXY(long seed, double[] x, double[] y, double[] z, float[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = Noise.noise3_ImproveXY(seed, x[i], y[i], z[i]);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * Damage shades of a set of base colours, computed once. Entry (base, shade) is the base colour
+ * scaled from minBrightness at shade 0 up to full brightness at shade steps, both as a Color and packed.
+ */
+public class ShadePalette {
+    private final int steps;
+    private final Color[] colors; // [base * (steps + 1) + shade]
+    private final float[] packedColors;
+
+    public ShadePalette(Color[] bases, int steps, float minBrightness) {
+        this.steps = steps;
+        this.colors = new Color[bases.length * (steps + 1)];
+        this.packedColors = new float[colors.length];
+        for (int base = 0; base < bases.length; base++) {
+            Color color = bases[base];
+            for (int shade = 0; shade <= steps; shade++) {
+                float brightness = steps == 0 ? 1.0f : minBrightness + (1.0f - minBrightness) * shade / steps;
+                Color shaded = new Color(color.r * brightness, color.g * brightness, color.b * brightness, color.a);
+                colors[getEntry(base, shade)] = shaded;
+                packedColors[getEntry(base, shade)] = shaded.toFloatBits();
+            }
+        }
+    }
+
+    /**
+     * Quantizes the remaining health fraction to a shade in [0, steps].
+     */
+    public static int getShade(float health, float baseHealth, int steps) {
+        int shade = Math.round(health / baseHealth * steps);
+        return Math.max(0, Math.min(steps, shade));
+    }
+
+    public int getEntry(int base, int shade) {
+        return base * (steps + 1) + shade;
+    }
+
+    public Color getColor(int entry) {
+        return colors[entry];
+    }
+
+    public float getPackedColor(int entry) {
+        return packedColors[entry];
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,65 @@
+package org.latinschool;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a simulation tick at a fixed rate on its own thread, passing each tick the real time since the last one.
+ * A tick that throws stops the loop, and the throwable is kept for the render thread to report.
+ */
+public class SimulationThread extends Thread {
+    public interface Tick {
+        void run(float deltaTime);
+    }
+
+    private final Tick tick;
+    private final long periodNanos;
+    private volatile boolean running = true;
+    private volatile Throwable failure; // Thrown by a tick, null while healthy
+
+    public SimulationThread(Tick tick, float period) {
+        super("simulation");
+        this.tick = tick;
+        this.periodNanos = (long) (period * 1_000_000_000L);
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        long last = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            try {
+                tick.run((now - last) / 1_000_000_000.0f);
+            } catch (Throwable t) {
+                failure = t;
+                running = false;
+                return;
+            }
+            last = now;
+            long remaining = periodNanos - (System.nanoTime() - now);
+            if (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    /**
+     * Returns what a tick threw, or null if the simulation is still healthy.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stops the loop after the current tick and waits for it to finish.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(this);
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
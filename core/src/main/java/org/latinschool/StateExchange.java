@@ -0,0 +1,53 @@
+package org.latinschool;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free hand-off of the latest state from one writer thread to one reader thread.
+ * The writer fills its back buffer and publishes it, the reader acquires the newest published buffer.
+ * A third buffer sits between them, so neither side ever waits or touches a buffer the other is using.
+ */
+public class StateExchange<T> {
+    private static final class Slot<T> {
+        private final T value;
+        private long sequence = 0; // 0 until first published
+
+        private Slot(T value) {
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Slot<T>> middle;
+    private Slot<T> back; // Writer only
+    private Slot<T> front; // Reader only
+    private long published = 0; // Writer only
+
+    public StateExchange(Supplier<T> factory) {
+        this.back = new Slot<>(factory.get());
+        this.middle = new AtomicReference<>(new Slot<>(factory.get()));
+        this.front = new Slot<>(factory.get());
+    }
+
+    /**
+     * Returns the buffer to fill before the next {@link #publish}. It holds stale state, so overwrite all of it.
+     */
+    public T getWriteBuffer() {
+        return back.value;
+    }
+
+    public void publish() {
+        back.sequence = ++published;
+        back = middle.getAndSet(back);
+    }
+
+    /**
+     * Returns the newest published buffer, which stays untouched until the next acquire, or null if none was published.
+     */
+    public T acquire() {
+        if (middle.get().sequence > front.sequence) {
+            front = middle.getAndSet(front);
+        }
+        return front.sequence > 0 ? front.value : null;
+    }
+}
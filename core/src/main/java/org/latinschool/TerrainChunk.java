@@ -0,0 +1,61 @@
+package org.latinschool;
+
+import java.util.BitSet;
+
+public class TerrainChunk {
+    private final int startRow;
+    private final int rows;
+    private final int columns;
+    private final byte[] materials;
+    private final BitSet[] caveMasks;
+    private final BitSet[] oreMasks;
+
+    public TerrainChunk(int startRow, int rows, int columns) {
+        this.startRow = startRow;
+        this.rows = rows;
+        this.columns = columns;
+        this.materials = new byte[rows * columns];
+        this.caveMasks = new BitSet[rows];
+        this.oreMasks = new BitSet[rows];
+        for (int i = 0; i < rows; i++) {
+            caveMasks[i] = new BitSet(columns);
+            oreMasks[i] = new BitSet(columns);
+        }
+    }
+
+    public byte getMaterial(int row, int col) {
+        return materials[(row - startRow) * columns + col];
+    }
+
+    public void setMaterial(int row, int col, int layerIndex) {
+        materials[(row - startRow) * columns + col] = (byte) layerIndex;
+    }
+
+    public boolean isCave(int row, int col) {
+        return caveMasks[row - startRow].get(col);
+    }
+
+    public BitSet getCaveMask(int row) {
+        return caveMasks[row - startRow];
+    }
+
+    public void setOre(int row, int col) {
+        oreMasks[row - startRow].set(col);
+    }
+
+    public BitSet getOreMask(int row) {
+        return oreMasks[row - startRow];
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+}
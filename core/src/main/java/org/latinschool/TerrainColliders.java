@@ -0,0 +1,83 @@
+package org.latinschool;
+
+import com.badlogic.gdx.physics.box2d.Body;
+
+import java.util.BitSet;
+
+/**
+ * Static colliders for the terrain. Each storage row owns one static body, and every horizontal run
+ * of solid cells in that row becomes a single box fixture. A row is the unit of rebuild,
+ * so mining a block or cycling a row only touches that row's fixtures. A cycled row keeps its body, moved to
+ * the new height, and its fixtures are rebuilt from the {@link FixturePool}'s shared shape and def.
+ */
+public class TerrainColliders implements TerrainCollision {
+    static final float FRICTION = 0.25f;
+
+    private final FixturePool pool;
+    private final TerrainStore store;
+    private final Body[] rowBodies; // [storage row]
+    private final int[] rowFixtureCounts; // [storage row]
+    private final BitSet[] builtMasks; // Solid cells each row body was last built from
+    private final BitSet solidMask = new BitSet();
+    private int fixtureCount = 0;
+
+    public TerrainColliders(FixturePool pool, TerrainStore store, Object userData) {
+        this.pool = pool;
+        this.store = store;
+        this.rowBodies = new Body[store.getRows()];
+        this.rowFixtureCounts = new int[store.getRows()];
+        this.builtMasks = new BitSet[store.getRows()];
+        pool.createRowBodies(rowBodies, store, userData);
+        for (int storageRow = 0; storageRow < store.getRows(); storageRow++) {
+            builtMasks[storageRow] = new BitSet(store.getColumns());
+        }
+        update();
+    }
+
+    /**
+     * Brings the fixtures of every row the store marked dirty up to date.
+     */
+    @Override
+    public void update() {
+        for (int storageRow = store.takeDirtyRow(); storageRow >= 0; storageRow = store.takeDirtyRow()) {
+            syncRow(storageRow, store.getSolidMask(storageRow, solidMask));
+        }
+    }
+
+    /**
+     * Rebuilds the row's fixtures if its solid cells differ from the ones it was last built from.
+     */
+    public void syncRow(int storageRow, BitSet solidMask) {
+        if (!solidMask.equals(builtMasks[storageRow])) {
+            rebuildRow(storageRow, solidMask);
+        }
+    }
+
+    public void rebuildRow(int storageRow, BitSet solidMask) {
+        float blockSize = store.getBlockSize();
+        int created = pool.buildRow(rowBodies[storageRow], solidMask, blockSize, blockSize, 0.0f, FRICTION, 0.0f);
+        fixtureCount += created - rowFixtureCounts[storageRow];
+        rowFixtureCounts[storageRow] = created;
+
+        builtMasks[storageRow].clear();
+        builtMasks[storageRow].or(solidMask);
+    }
+
+    @Override
+    public void rowCycled(int storageRow) {
+        Body body = rowBodies[storageRow];
+        body.setTransform(store.getOriginX(), store.getStorageRowY(storageRow), body.getAngle());
+    }
+
+    /**
+     * Nothing to do, Box2D resolved the contacts during the step.
+     */
+    @Override
+    public void resolve(Body body, float halfWidth, float halfHeight, float fromX, float fromY) {
+    }
+
+    @Override
+    public int getFixtureCount() {
+        return fixtureCount;
+    }
+}
@@ -0,0 +1,30 @@
+package org.latinschool;
+
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * How bodies collide with the terrain. {@link TerrainColliders} gives the terrain Box2D fixtures and lets
+ * Box2D resolve contacts, {@link GridCollision} resolves bodies against the block grid itself.
+ */
+public interface TerrainCollision {
+    /**
+     * Brings the backend up to date with cells the store changed. Called before the physics steps.
+     */
+    void update();
+
+    /**
+     * Called after the terrain recycled the storage row as its new bottom row.
+     */
+    void rowCycled(int storageRow);
+
+    /**
+     * Keeps a body, treated as a box with the given half extents, that moved from (fromX, fromY)
+     * during the last physics step out of solid cells.
+     */
+    void resolve(Body body, float halfWidth, float halfHeight, float fromX, float fromY);
+
+    /**
+     * Returns the number of Box2D fixtures the backend keeps for the terrain.
+     */
+    int getFixtureCount();
+}
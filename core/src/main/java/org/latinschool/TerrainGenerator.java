@@ -0,0 +1,110 @@
+package org.latinschool;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+public class TerrainGenerator {
+    private final Vector2 origin;
+    private final int columns;
+    private final float blockSize;
+    private final TerrainProfile profile;
+    private final CaveFunction caves;
+    private final long seed;
+    private final float minOreDistance;
+
+    // Only touched by placeOres, which the streamer runs one chunk at a time in row order
+    private final OreIndex ores;
+
+    public TerrainGenerator(Vector2 origin, int columns, float blockSize, TerrainProfile profile,
+                            CaveFunction caves, long seed) {
+        this.origin = new Vector2(origin);
+        this.columns = columns;
+        this.blockSize = blockSize;
+        this.profile = profile;
+        this.caves = caves;
+        this.seed = seed;
+        this.minOreDistance = blockSize * 10;
+        this.ores = new OreIndex(minOreDistance);
+    }
+
+    /**
+     * Generates layers and caves for a chunk, one fork-join task per row. Ores are placed separately by
+     * {@link #placeOres(TerrainChunk)} since they depend on the ores placed above them.
+     */
+    public TerrainChunk generateChunk(int startRow, int rows) {
+        TerrainChunk chunk = new TerrainChunk(startRow, rows, columns);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(rows);
+        for (int row = startRow; row < startRow + rows; row++) {
+            int taskRow = row;
+            tasks.add(ForkJoinTask.adapt(() -> generateRow(chunk, taskRow)));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        return chunk;
+    }
+
+    private void generateRow(TerrainChunk chunk, int row) {
+        boolean hasCaveLayer = false;
+        for (int col = 0; col < columns; col++) {
+            int layerIndex = getLayerIndex(row, col);
+            chunk.setMaterial(row, col, layerIndex);
+            hasCaveLayer |= profile.isCaveEligible(layerIndex);
+        }
+        if (!hasCaveLayer) {
+            return;
+        }
+
+        BitSet caveMask = chunk.getCaveMask(row);
+        caves.fillRow(getColumnX(0), getRowY(row), blockSize, columns, caveMask);
+        for (int col = caveMask.nextSetBit(0); col >= 0; col = caveMask.nextSetBit(col + 1)) {
+            if (!profile.isCaveEligible(chunk.getMaterial(row, col))) {
+                caveMask.clear(col);
+            }
+        }
+    }
+
+    public TerrainChunk placeOres(TerrainChunk chunk) {
+        int startRow = chunk.getStartRow();
+        ores.prune(getRowY(startRow) + blockSize / 2 + minOreDistance);
+
+        for (int row = startRow; row < startRow + chunk.getRows(); row++) {
+            for (int col = 0; col < columns; col++) {
+                if (chunk.isCave(row, col)) {
+                    continue;
+                }
+                Vector2 position = new Vector2(getColumnX(col), getRowY(row));
+                if (isOre(position, row, col)) {
+                    ores.add(position);
+                    chunk.setOre(row, col);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private boolean isOre(Vector2 position, int row, int col) {
+        if (ores.hasOreWithin(position, minOreDistance)) {
+            return false;
+        }
+
+        float oreProbability = 0.25f;
+        return TerrainRandom.random(seed, row, col, TerrainRandom.PURPOSE_ORE) < oreProbability; // Mark this block as an ore
+    }
+
+    private int getLayerIndex(int depth, int col) {
+        float random = profile.isTransition(depth)
+            ? TerrainRandom.random(seed, depth, col, TerrainRandom.PURPOSE_LAYER) : 0.0f;
+        return profile.getLayerIndex(depth, random);
+    }
+
+    public float getColumnX(int col) {
+        return origin.x + (col + 0.5f) * blockSize;
+    }
+
+    public float getRowY(int row) {
+        return origin.y - (row + 0.5f) * blockSize;
+    }
+}
@@ -0,0 +1,210 @@
+package org.latinschool;
+
+import java.util.Arrays;
+
+/**
+ * CPU side of the terrain mesh: one quad of (x, y, packed colour) vertices per storage index.
+ * Only rows the store reports as redrawn are revisited, and within them only quads whose palette entry
+ * or height changed are rewritten. Needs no GL context.
+ */
+public class TerrainMeshBuilder {
+    public static final int VERTEX_SIZE = 3; // x, y, packed colour
+    public static final int QUAD_SIZE = 4 * VERTEX_SIZE;
+    public static final int MAX_QUADS_PER_MESH = 65536 / 4; // Every vertex index fits an unsigned short
+    private static final int EMPTY = -1;
+    private static final int UNWRITTEN = -2;
+
+    private final TerrainStore store;
+    private final float outlineWidth;
+    private final int quads;
+    private final float[] vertices;
+    private final int[] quadKeys; // Palette entry each quad was last written with, or EMPTY
+    private final float[] rowYs; // Height each storage row was last written at
+    private final long[] rowVersions; // Update each storage row was last rewritten in
+    private long updates = 0;
+
+    // Quad ranges [start, end) rewritten by the last update, at most one per row
+    private final int[] rangeStarts;
+    private final int[] rangeEnds;
+    private int rangeCount = 0;
+
+    private int quadsWrittenLastUpdate = 0;
+    private long totalQuadsWritten = 0;
+
+    public TerrainMeshBuilder(TerrainStore store, float outlineWidth) {
+        this.store = store;
+        this.outlineWidth = outlineWidth;
+        this.quads = store.getRows() * store.getColumns();
+        this.vertices = new float[quads * QUAD_SIZE];
+        this.quadKeys = new int[quads];
+        this.rowYs = new float[store.getRows()];
+        this.rowVersions = new long[store.getRows()];
+        this.rangeStarts = new int[store.getRows()];
+        this.rangeEnds = new int[store.getRows()];
+        Arrays.fill(quadKeys, UNWRITTEN);
+    }
+
+    /**
+     * Index buffer for the given number of quads, two triangles each. Indices above 32767 wrap to negative shorts,
+     * which GL reads back as unsigned. At most {@link #MAX_QUADS_PER_MESH} quads, larger terrains need several meshes.
+     */
+    public static short[] createIndices(int quads) {
+        if (quads > MAX_QUADS_PER_MESH) {
+            throw new IllegalArgumentException(quads + " quads overflow 16-bit indices, the limit is "
+                + MAX_QUADS_PER_MESH);
+        }
+        short[] indices = new short[quads * 6];
+        for (int quad = 0, i = 0; quad < quads; quad++) {
+            short vertex = (short) (quad * 4);
+            indices[i++] = vertex;
+            indices[i++] = (short) (vertex + 1);
+            indices[i++] = (short) (vertex + 2);
+            indices[i++] = (short) (vertex + 2);
+            indices[i++] = (short) (vertex + 3);
+            indices[i++] = vertex;
+        }
+        return indices;
+    }
+
+    /**
+     * Rewrites the quads of every row the store marked for redrawing since the last update.
+     */
+    public void update() {
+        updates++;
+        rangeCount = 0;
+        quadsWrittenLastUpdate = 0;
+        for (int storageRow = store.takeRedrawRow(); storageRow >= 0; storageRow = store.takeRedrawRow()) {
+            updateRow(storageRow);
+        }
+        totalQuadsWritten += quadsWrittenLastUpdate;
+    }
+
+    private void updateRow(int storageRow) {
+        int columns = store.getColumns();
+        float rowY = store.getStorageRowY(storageRow);
+        boolean moved = rowYs[storageRow] != rowY;
+        rowYs[storageRow] = rowY;
+
+        int start = -1;
+        int end = -1;
+        for (int index = storageRow * columns; index < (storageRow + 1) * columns; index++) {
+            int key = getKey(index);
+            if (!moved && quadKeys[index] == key) {
+                continue;
+            }
+            quadKeys[index] = key;
+            writeQuad(index, key);
+            if (start < 0) {
+                start = index;
+            }
+            end = index + 1;
+            quadsWrittenLastUpdate++;
+        }
+        if (start >= 0) {
+            rowVersions[storageRow] = updates;
+            rangeStarts[rangeCount] = start;
+            rangeEnds[rangeCount] = end;
+            rangeCount++;
+        }
+    }
+
+    private int getKey(int index) {
+        if (!store.isSolid(index)) {
+            return EMPTY;
+        }
+        return store.getPaletteEntry(index);
+    }
+
+    private void writeQuad(int index, int key) {
+        int offset = index * QUAD_SIZE;
+        if (key == EMPTY) {
+            // Collapse the quad to a point so it rasterizes nothing
+            Arrays.fill(vertices, offset, offset + QUAD_SIZE, 0.0f);
+            return;
+        }
+        float size = store.getBlockSize();
+        float halfSize = size / 2;
+        float x0 = store.getX(index) - halfSize + outlineWidth;
+        float y0 = store.getY(index) - halfSize + outlineWidth;
+        float x1 = x0 + size - outlineWidth * 2;
+        float y1 = y0 + size - outlineWidth * 2;
+
+        float packed = store.getPalette().getPackedColor(key);
+
+        offset = putVertex(offset, x0, y0, packed);
+        offset = putVertex(offset, x1, y0, packed);
+        offset = putVertex(offset, x1, y1, packed);
+        putVertex(offset, x0, y1, packed);
+    }
+
+    private int putVertex(int offset, float x, float y, float packed) {
+        vertices[offset] = x;
+        vertices[offset + 1] = y;
+        vertices[offset + 2] = packed;
+        return offset + VERTEX_SIZE;
+    }
+
+    /**
+     * Copies the vertices of every storage row whose version differs from the one in versions,
+     * bringing a copy made by earlier calls up to date. Start versions at -1 to copy everything.
+     * Returns the number of rows copied.
+     */
+    public int copyChangedRows(float[] vertices, long[] versions) {
+        int rowSize = store.getColumns() * QUAD_SIZE;
+        int copied = 0;
+        for (int storageRow = 0; storageRow < rowVersions.length; storageRow++) {
+            if (versions[storageRow] != rowVersions[storageRow]) {
+                System.arraycopy(this.vertices, storageRow * rowSize, vertices, storageRow * rowSize, rowSize);
+                versions[storageRow] = rowVersions[storageRow];
+                copied++;
+            }
+        }
+        return copied;
+    }
+
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    public int getQuadCount() {
+        return quads;
+    }
+
+    public int getVertexCount() {
+        return quads * 4;
+    }
+
+    /**
+     * Returns how many meshes of at most {@link #MAX_QUADS_PER_MESH} quads the terrain is split into.
+     */
+    public int getMeshCount() {
+        return (quads + MAX_QUADS_PER_MESH - 1) / MAX_QUADS_PER_MESH;
+    }
+
+    /**
+     * Returns the number of quads in the given mesh, the last one holding the remainder.
+     */
+    public int getMeshQuadCount(int mesh) {
+        return Math.min(MAX_QUADS_PER_MESH, quads - mesh * MAX_QUADS_PER_MESH);
+    }
+
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    public int getRangeStart(int range) {
+        return rangeStarts[range];
+    }
+
+    public int getRangeEnd(int range) {
+        return rangeEnds[range];
+    }
+
+    public int getQuadsWrittenLastUpdate() {
+        return quadsWrittenLastUpdate;
+    }
+
+    public long getTotalQuadsWritten() {
+        return totalQuadsWritten;
+    }
+}
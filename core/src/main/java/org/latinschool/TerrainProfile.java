@@ -0,0 +1,102 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * Layer configuration compiled into lookup tables. Every depth up to the end of the last layer transition
+ * maps to a primary layer, a fallback layer and the probability of picking the primary one,
+ * so choosing a layer at any depth is a single array lookup.
+ */
+public class TerrainProfile {
+    private static final int NO_RANDOMNESS_LAYERS = 2; // The first layers never blend into the one above
+    private static final int MIN_TRANSITION = 3;
+    private static final int MAX_TRANSITION = 10;
+
+    private final Color[] colors;
+    private final float[] healths;
+    private final boolean[] caveEligible;
+
+    private final byte[] primaryLayers; // [depth]
+    private final byte[] fallbackLayers; // [depth]
+    private final float[] probabilities; // [depth], chance of the primary layer
+    private final int deepestLayer;
+
+    public TerrainProfile(Color[] layers, int[] layerThresholds, float[] layerHealths, Color[] caveLayers) {
+        this.colors = layers.clone();
+        this.healths = layerHealths.clone();
+        this.caveEligible = new boolean[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            for (Color caveLayer : caveLayers) {
+                if (layers[i].equals(caveLayer)) {
+                    caveEligible[i] = true;
+                }
+            }
+        }
+
+        // Past the last threshold plus its transition every depth is the deepest layer
+        int tableSize = layerThresholds[layers.length - 1] + MAX_TRANSITION;
+        this.primaryLayers = new byte[tableSize];
+        this.fallbackLayers = new byte[tableSize];
+        this.probabilities = new float[tableSize];
+        this.deepestLayer = layers.length - 1;
+        for (int depth = 0; depth < tableSize; depth++) {
+            compileDepth(depth, layers.length, layerThresholds);
+        }
+    }
+
+    private void compileDepth(int depth, int layerCount, int[] layerThresholds) {
+        primaryLayers[depth] = -1;
+        fallbackLayers[depth] = -1;
+        probabilities[depth] = 1.0f;
+        for (int i = 0; i < layerCount; i++) {
+            int threshold = layerThresholds[i];
+            int nextThreshold = (i + 1 < layerThresholds.length) ? layerThresholds[i + 1] : Integer.MAX_VALUE;
+            if (depth >= threshold && depth < nextThreshold) {
+                primaryLayers[depth] = (byte) i;
+                if (i < NO_RANDOMNESS_LAYERS) {
+                    fallbackLayers[depth] = (byte) i;
+                    return;
+                }
+                int transitionRange = Math.max(MIN_TRANSITION, Math.min(MAX_TRANSITION, (nextThreshold - threshold) / 2));
+                int transitionDepth = depth - threshold;
+
+                fallbackLayers[depth] = (byte) (i - 1);
+                probabilities[depth] = Math.min(1.0f, (float) transitionDepth / transitionRange);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the layer at this depth depends on a random roll.
+     */
+    public boolean isTransition(int depth) {
+        return depth < probabilities.length && probabilities[depth] > 0.0f && probabilities[depth] < 1.0f;
+    }
+
+    /**
+     * Picks the layer at a depth given a uniform random value in [0, 1).
+     */
+    public int getLayerIndex(int depth, float random) {
+        if (depth >= probabilities.length) {
+            return deepestLayer;
+        }
+        return random < probabilities[depth] ? primaryLayers[depth] : fallbackLayers[depth];
+    }
+
+    public Color getColor(int layerIndex) {
+        return colors[layerIndex];
+    }
+
+    public float getHealth(int layerIndex) {
+        return healths[layerIndex];
+    }
+
+    public boolean isCaveEligible(int layerIndex) {
+        return caveEligible[layerIndex];
+    }
+
+    public int getLayerCount() {
+        return colors.length;
+    }
+}
@@ -0,0 +1,31 @@
+package org.latinschool;
+
+/**
+ * Stateless random values for terrain generation. Every value is a hash of (seed, row, column, purpose),
+ * so any cell at any depth can be generated independently, on any thread, and the same seed always
+ * produces the same world. Hashing follows the prime-multiply scheme used in {@link Noise}.
+ */
+public final class TerrainRandom {
+    public static final int PURPOSE_LAYER = 0;
+    public static final int PURPOSE_ORE = 1;
+
+    private static final long PRIME_X = 0x5205402B9270C86FL;
+    private static final long PRIME_Y = 0x598CD327003817B5L;
+    private static final long PRIME_PURPOSE = 0x5BCC226E9FA0BACBL;
+    private static final long HASH_MULTIPLIER = 0x53A3F72DEEC546F5L;
+
+    private TerrainRandom() {
+    }
+
+    /**
+     * Returns a uniformly distributed value in [0, 1).
+     */
+    public static float random(long seed, int row, int col, int purpose) {
+        long hash = seed ^ (col * PRIME_X) ^ (row * PRIME_Y) ^ (purpose * PRIME_PURPOSE);
+        hash *= HASH_MULTIPLIER;
+        hash ^= hash >>> 32;
+        hash *= HASH_MULTIPLIER;
+        hash ^= hash >>> 29;
+        return (hash >>> 40) * 0x1.0p-24f;
+    }
+}
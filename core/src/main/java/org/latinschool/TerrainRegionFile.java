@@ -0,0 +1,171 @@
+package org.latinschool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persists terrain rows to memory-mapped region files. Each file holds a fixed number of consecutive rows
+ * as fixed-size records, so a row at any depth is read or written in place without seeking through the file.
+ * <p>
+ * Region layout: a header (magic, columns, seed) followed by {@link #REGION_ROWS} row records.
+ * Row record layout: a presence byte, then the row as written by {@link TerrainStore#writeRow}.
+ */
+public class TerrainRegionFile {
+    public static final int REGION_ROWS = 256;
+    private static final int MAGIC = 0x54524731; // "TRG1"
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+    private static final int MAX_MAPPED_REGIONS = 4;
+
+    private final Path directory;
+    private final int columns;
+    private final long seed;
+    private final int recordSize;
+
+    private final Map<Integer, MappedByteBuffer> regions = new LinkedHashMap<>(16, 0.75f, true);
+
+    public TerrainRegionFile(Path directory, int columns, long seed) {
+        this.directory = directory;
+        this.columns = columns;
+        this.seed = seed;
+        this.recordSize = 1 + TerrainStore.getRowRecordSize(columns);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the seed of the world saved in the directory, or the fallback if there is none
+     * or it was saved with a different number of columns.
+     */
+    public static long readSeed(Path directory, int columns, long fallback) {
+        Path file = getRegionPath(directory, 0);
+        if (!Files.exists(file)) {
+            return fallback;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != columns) {
+                return fallback;
+            }
+            return header.getLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads a saved row into the store, returning false if the row was never written.
+     */
+    public boolean readRow(int row, TerrainStore store, int storageRow) {
+        ByteBuffer record = getRecord(row);
+        if (record.get() == 0) {
+            return false;
+        }
+        store.readRow(storageRow, record);
+        return true;
+    }
+
+    public void writeRow(int row, TerrainStore store, int storageRow) {
+        ByteBuffer record = getRecord(row);
+        record.put((byte) 1);
+        store.writeRow(storageRow, record);
+    }
+
+    private ByteBuffer getRecord(int row) {
+        int offset = HEADER_SIZE + (row % REGION_ROWS) * recordSize;
+        ByteBuffer region = getRegion(row / REGION_ROWS).duplicate();
+        region.position(offset).limit(offset + recordSize);
+        return region.slice();
+    }
+
+    private MappedByteBuffer getRegion(int regionIndex) {
+        MappedByteBuffer region = regions.get(regionIndex);
+        if (region != null) {
+            return region;
+        }
+
+        region = mapRegion(regionIndex);
+        regions.put(regionIndex, region);
+        if (regions.size() > MAX_MAPPED_REGIONS) {
+            Map.Entry<Integer, MappedByteBuffer> eldest = regions.entrySet().iterator().next();
+            eldest.getValue().force();
+            regions.remove(eldest.getKey());
+        }
+        return region;
+    }
+
+    /**
+     * Maps a region, starting it empty if the file is missing or belongs to a different world.
+     */
+    private MappedByteBuffer mapRegion(int regionIndex) {
+        Path file = getRegionPath(directory, regionIndex);
+        long size = HEADER_SIZE + (long) REGION_ROWS * recordSize;
+
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            if (!hasHeader(channel)) {
+                channel.truncate(0); // Mapping grows the file back, zero filled, so every row reads as unwritten
+            }
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            region.putInt(0, MAGIC);
+            region.putInt(Integer.BYTES, columns);
+            region.putLong(Integer.BYTES * 2, seed);
+            return region;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean hasHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        return header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getInt() == columns
+            && header.getLong() == seed;
+    }
+
+    /**
+     * Deletes every region file in the directory. The terrain using them must be closed first.
+     */
+    public static void delete(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "region-*.bin")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path getRegionPath(Path directory, int regionIndex) {
+        return directory.resolve("region-" + regionIndex + ".bin");
+    }
+
+    public void flush() {
+        for (MappedByteBuffer region : regions.values()) {
+            region.force();
+        }
+    }
+
+    public void close() {
+        flush();
+        regions.clear();
+    }
+}
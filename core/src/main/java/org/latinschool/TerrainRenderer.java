@@ -0,0 +1,203 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+
+import java.util.Arrays;
+
+/**
+ * Draws the terrain from meshes kept in sync by a {@link TerrainMeshBuilder}. Quads are split across
+ * meshes of at most {@link TerrainMeshBuilder#MAX_QUADS_PER_MESH} so every index fits in 16 bits.
+ * Each frame uploads only the quad ranges the builder rewrote, then draws the visible cells,
+ * one call per contiguous span of storage rows or one per row when columns are culled too,
+ * plus one wherever a span crosses into the next mesh.
+ */
+public class TerrainRenderer {
+    private static final String VERTEX_SHADER =
+        "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" +
+        "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+        "uniform mat4 u_projTrans;\n" +
+        "varying vec4 v_color;\n" +
+        "void main() {\n" +
+        "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+        "    gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" +
+        "}\n";
+    private static final String FRAGMENT_SHADER =
+        "#ifdef GL_ES\n" +
+        "precision mediump float;\n" +
+        "#endif\n" +
+        "varying vec4 v_color;\n" +
+        "void main() {\n" +
+        "    gl_FragColor = v_color;\n" +
+        "}\n";
+
+    private final TerrainStore store;
+    private final TerrainMeshBuilder builder;
+    private final Mesh[] meshes; // Consecutive runs of MAX_QUADS_PER_MESH quads
+    private final ShaderProgram shader;
+    private boolean uploaded = false; // Whether the meshes have ever received the builder's vertices
+    private final long[] uploadedRowVersions; // Snapshot row versions the meshes hold
+    private int uploadsLastFrame = 0;
+    private int drawCallsLastFrame = 0;
+    private int drawnBlocksLastFrame = 0;
+    private int culledBlocksLastFrame = 0;
+
+    public TerrainRenderer(TerrainStore store, TerrainMeshBuilder builder) {
+        this.store = store;
+        this.builder = builder;
+        this.uploadedRowVersions = new long[store.getRows()];
+        Arrays.fill(uploadedRowVersions, -1L);
+        this.meshes = new Mesh[builder.getMeshCount()];
+        for (int i = 0; i < meshes.length; i++) {
+            int quads = builder.getMeshQuadCount(i);
+            meshes[i] = new Mesh(false, quads * 4, quads * 6,
+                new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE));
+            meshes[i].setIndices(TerrainMeshBuilder.createIndices(quads));
+        }
+
+        this.shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if (!shader.isCompiled()) {
+            throw new IllegalStateException("Terrain shader failed to compile: " + shader.getLog());
+        }
+    }
+
+    /**
+     * Draws the cells of logical rows [firstRow, lastRow] and columns [firstColumn, lastColumn].
+     */
+    public void draw(Camera camera, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        builder.update();
+        if (!uploaded) {
+            uploadAll(builder.getVertices());
+            uploaded = true;
+            uploadsLastFrame = 1;
+        } else {
+            uploadsLastFrame = builder.getRangeCount();
+            for (int range = 0; range < uploadsLastFrame; range++) {
+                int start = builder.getRangeStart(range);
+                uploadQuads(builder.getVertices(), start, builder.getRangeEnd(range) - start);
+            }
+        }
+
+        drawVisible(camera, store.getStorageRow(0), firstRow, lastRow, firstColumn, lastColumn);
+    }
+
+    /**
+     * Draws from a snapshot made on another thread. Only storage rows whose version changed since they were
+     * last uploaded are sent, and culling uses the snapshot's row layout and window, since the store's
+     * belong to the other thread.
+     */
+    public void drawSnapshot(Camera camera, RenderSnapshot snapshot) {
+        int columns = store.getColumns();
+        uploadsLastFrame = 0;
+        for (int storageRow = 0; storageRow < uploadedRowVersions.length; storageRow++) {
+            if (uploadedRowVersions[storageRow] != snapshot.terrainRowVersions[storageRow]) {
+                uploadQuads(snapshot.terrainVertices, storageRow * columns, columns);
+                uploadedRowVersions[storageRow] = snapshot.terrainRowVersions[storageRow];
+                uploadsLastFrame++;
+            }
+        }
+        drawVisible(camera, snapshot.terrainRowOffset, snapshot.terrainFirstRow, snapshot.terrainLastRow,
+            snapshot.terrainFirstColumn, snapshot.terrainLastColumn);
+    }
+
+    /**
+     * Draws logical rows [firstRow, lastRow] and columns [firstColumn, lastColumn], rowOffset being the
+     * storage row that holds logical row 0.
+     */
+    private void drawVisible(Camera camera, int rowOffset, int firstRow, int lastRow, int firstColumn,
+                             int lastColumn) {
+        drawCallsLastFrame = 0;
+        drawnBlocksLastFrame = 0;
+        if (firstRow <= lastRow && firstColumn <= lastColumn) {
+            shader.bind();
+            shader.setUniformMatrix("u_projTrans", camera.combined);
+            int columns = store.getColumns();
+            if (firstColumn == 0 && lastColumn == columns - 1) {
+                drawRowSpans((rowOffset + firstRow) % store.getRows(), lastRow - firstRow + 1);
+            } else {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    drawQuads((rowOffset + row) % store.getRows() * columns + firstColumn,
+                        lastColumn - firstColumn + 1);
+                }
+            }
+        }
+        culledBlocksLastFrame = builder.getQuadCount() - drawnBlocksLastFrame;
+    }
+
+    /**
+     * Draws whole rows starting at the given storage row, split in two where they wrap around the end
+     * of the ring buffer.
+     */
+    private void drawRowSpans(int storageRow, int rows) {
+        int columns = store.getColumns();
+        int rowsBeforeWrap = Math.min(rows, store.getRows() - storageRow);
+        drawQuads(storageRow * columns, rowsBeforeWrap * columns);
+        if (rowsBeforeWrap < rows) {
+            drawQuads(0, (rows - rowsBeforeWrap) * columns);
+        }
+    }
+
+    private void uploadAll(float[] vertices) {
+        for (int i = 0; i < meshes.length; i++) {
+            int offset = i * TerrainMeshBuilder.MAX_QUADS_PER_MESH * TerrainMeshBuilder.QUAD_SIZE;
+            meshes[i].setVertices(vertices, offset, builder.getMeshQuadCount(i) * TerrainMeshBuilder.QUAD_SIZE);
+        }
+    }
+
+    private void uploadQuads(float[] vertices, int firstQuad, int quads) {
+        while (quads > 0) {
+            int mesh = firstQuad / TerrainMeshBuilder.MAX_QUADS_PER_MESH;
+            int localQuad = firstQuad - mesh * TerrainMeshBuilder.MAX_QUADS_PER_MESH;
+            int count = Math.min(quads, TerrainMeshBuilder.MAX_QUADS_PER_MESH - localQuad);
+            meshes[mesh].updateVertices(localQuad * TerrainMeshBuilder.QUAD_SIZE, vertices,
+                firstQuad * TerrainMeshBuilder.QUAD_SIZE, count * TerrainMeshBuilder.QUAD_SIZE);
+            firstQuad += count;
+            quads -= count;
+        }
+    }
+
+    private void drawQuads(int firstQuad, int quads) {
+        drawnBlocksLastFrame += quads;
+        while (quads > 0) {
+            int mesh = firstQuad / TerrainMeshBuilder.MAX_QUADS_PER_MESH;
+            int localQuad = firstQuad - mesh * TerrainMeshBuilder.MAX_QUADS_PER_MESH;
+            int count = Math.min(quads, TerrainMeshBuilder.MAX_QUADS_PER_MESH - localQuad);
+            meshes[mesh].render(shader, GL20.GL_TRIANGLES, localQuad * 6, count * 6);
+            drawCallsLastFrame++;
+            firstQuad += count;
+            quads -= count;
+        }
+    }
+
+    public TerrainMeshBuilder getBuilder() {
+        return builder;
+    }
+
+    public int getUploadsLastFrame() {
+        return uploadsLastFrame;
+    }
+
+    public int getDrawCallsLastFrame() {
+        return drawCallsLastFrame;
+    }
+
+    public int getDrawnBlocksLastFrame() {
+        return drawnBlocksLastFrame;
+    }
+
+    public int getCulledBlocksLastFrame() {
+        return culledBlocksLastFrame;
+    }
+
+    public void dispose() {
+        for (Mesh mesh : meshes) {
+            mesh.dispose();
+        }
+        shader.dispose();
+    }
+}
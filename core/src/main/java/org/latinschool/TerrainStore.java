@@ -0,0 +1,320 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Primitive-array storage for the visible terrain rows. Rows live in a ring buffer,
+ * so cycling the top row to the bottom is an offset bump followed by a fill of that row's cells.
+ * Cells are addressed either by logical row (0 is the top of the terrain) or by their fixed storage index.
+ */
+public class TerrainStore {
+    public static final int FLAG_CAVE = 0;
+    public static final int FLAG_ORE = 1;
+    private static final int FLAG_COUNT = 2;
+    public static final int SHADE_STEPS = 4;
+    private static final float MIN_SHADE_BRIGHTNESS = 0.5f;
+
+    private final int rows;
+    private final int columns;
+    private final Vector2 origin; // Top left corner of row 0
+    private final float blockSize;
+    private final TerrainProfile profile;
+    private final ShadePalette palette; // Profile layers, then the ore colour
+
+    private final byte[] materials; // Layer index of each cell
+    private final float[] healths;
+    private final BitSet flags; // FLAG_COUNT bits per cell
+    private final BitSet dirtyRows; // Storage rows whose solid cells changed since the last takeDirtyRow
+    private final BitSet redrawRows; // Storage rows whose cells changed in any way since the last takeRedrawRow
+    private int rowOffset = 0; // Storage row holding logical row 0
+    private int topRow = 0; // Depth of logical row 0
+
+    public TerrainStore(int rows, int columns, Vector2 origin, float blockSize, TerrainProfile profile) {
+        this.rows = rows;
+        this.columns = columns;
+        this.origin = new Vector2(origin);
+        this.blockSize = blockSize;
+        this.profile = profile;
+        Color[] paletteColors = new Color[profile.getLayerCount() + 1];
+        for (int layer = 0; layer < profile.getLayerCount(); layer++) {
+            paletteColors[layer] = profile.getColor(layer);
+        }
+        paletteColors[profile.getLayerCount()] = Color.YELLOW;
+        this.palette = new ShadePalette(paletteColors, SHADE_STEPS, MIN_SHADE_BRIGHTNESS);
+        this.materials = new byte[rows * columns];
+        this.healths = new float[rows * columns];
+        this.flags = new BitSet(rows * columns * FLAG_COUNT);
+        this.dirtyRows = new BitSet(rows);
+        this.redrawRows = new BitSet(rows);
+    }
+
+    public int getIndex(int row, int col) {
+        return getStorageRow(row) * columns + col;
+    }
+
+    public int getStorageRow(int row) {
+        return (rowOffset + row) % rows;
+    }
+
+    /**
+     * Returns the logical row stored in the given storage row.
+     */
+    public int getRow(int storageRow) {
+        return (storageRow - rowOffset + rows) % rows;
+    }
+
+    public float getX(int index) {
+        return origin.x + (index % columns + 0.5f) * blockSize;
+    }
+
+    public float getY(int index) {
+        return getStorageRowY(index / columns);
+    }
+
+    public float getStorageRowY(int storageRow) {
+        return getRowY(getRow(storageRow));
+    }
+
+    public float getRowY(int row) {
+        return origin.y - (topRow + row + 0.5f) * blockSize;
+    }
+
+    /**
+     * Returns the logical row containing the given height, which may be outside the stored rows.
+     */
+    public int getRowAt(float y) {
+        return (int) Math.floor((origin.y - y) / blockSize) - topRow;
+    }
+
+    public int getColumnAt(float x) {
+        return (int) Math.floor((x - origin.x) / blockSize);
+    }
+
+    /**
+     * Walks the cells the segment from (x0, y0) to (x1, y1) crosses, in order, and returns the index of
+     * the first solid one, or -1 if there is none. Cells outside the stored rows and columns count as empty.
+     */
+    public int rayCast(float x0, float y0, float x1, float y1) {
+        int col = getColumnAt(x0);
+        int row = getRowAt(y0);
+        int endCol = getColumnAt(x1);
+        int endRow = getRowAt(y1);
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+
+        // Rows count downwards, so a falling ray steps to higher rows
+        int stepCol = dx > 0.0f ? 1 : -1;
+        int stepRow = dy < 0.0f ? 1 : -1;
+        // Fraction of the segment needed to cross one cell, and to reach the first column and row boundary
+        float deltaCol = dx != 0.0f ? Math.abs(blockSize / dx) : Float.POSITIVE_INFINITY;
+        float deltaRow = dy != 0.0f ? Math.abs(blockSize / dy) : Float.POSITIVE_INFINITY;
+        float nextColX = origin.x + (stepCol > 0 ? col + 1 : col) * blockSize;
+        float nextRowY = origin.y - (stepRow > 0 ? topRow + row + 1 : topRow + row) * blockSize;
+        float maxCol = dx != 0.0f ? (nextColX - x0) / dx : Float.POSITIVE_INFINITY;
+        float maxRow = dy != 0.0f ? (nextRowY - y0) / dy : Float.POSITIVE_INFINITY;
+
+        int steps = Math.abs(endCol - col) + Math.abs(endRow - row);
+        for (int i = 0; i <= steps; i++) {
+            if (row >= 0 && row < rows && col >= 0 && col < columns) {
+                int index = getIndex(row, col);
+                if (isSolid(index)) {
+                    return index;
+                }
+            }
+            if (maxCol < maxRow) {
+                col += stepCol;
+                maxCol += deltaCol;
+            } else {
+                row += stepRow;
+                maxRow += deltaRow;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recycles the top row as the new bottom row and returns its storage row.
+     */
+    public int cycleRow() {
+        int storageRow = rowOffset;
+        rowOffset = (rowOffset + 1) % rows;
+        topRow++;
+        return storageRow;
+    }
+
+    public void fillRow(int storageRow, TerrainChunk chunk, int chunkRow) {
+        int start = storageRow * columns;
+        flags.clear(start * FLAG_COUNT, (start + columns) * FLAG_COUNT);
+        for (int col = 0; col < columns; col++) {
+            byte material = chunk.getMaterial(chunkRow, col);
+            materials[start + col] = material;
+            healths[start + col] = profile.getHealth(material);
+        }
+        BitSet caveMask = chunk.getCaveMask(chunkRow);
+        for (int col = caveMask.nextSetBit(0); col >= 0; col = caveMask.nextSetBit(col + 1)) {
+            flags.set((start + col) * FLAG_COUNT + FLAG_CAVE);
+        }
+        BitSet oreMask = chunk.getOreMask(chunkRow);
+        for (int col = oreMask.nextSetBit(0); col >= 0; col = oreMask.nextSetBit(col + 1)) {
+            flags.set((start + col) * FLAG_COUNT + FLAG_ORE);
+        }
+        dirtyRows.set(storageRow);
+        redrawRows.set(storageRow);
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeRow} writes for a row of the given width.
+     */
+    public static int getRowRecordSize(int columns) {
+        return columns * (1 + 1 + Float.BYTES); // Material, flags, health
+    }
+
+    public void writeRow(int storageRow, ByteBuffer out) {
+        int start = storageRow * columns;
+        out.put(materials, start, columns);
+        for (int index = start; index < start + columns; index++) {
+            int cellFlags = 0;
+            for (int flag = 0; flag < FLAG_COUNT; flag++) {
+                if (hasFlag(index, flag)) {
+                    cellFlags |= 1 << flag;
+                }
+            }
+            out.put((byte) cellFlags);
+        }
+        for (int index = start; index < start + columns; index++) {
+            out.putFloat(healths[index]);
+        }
+    }
+
+    public void readRow(int storageRow, ByteBuffer in) {
+        int start = storageRow * columns;
+        in.get(materials, start, columns);
+        for (int index = start; index < start + columns; index++) {
+            int cellFlags = in.get();
+            for (int flag = 0; flag < FLAG_COUNT; flag++) {
+                flags.set(index * FLAG_COUNT + flag, (cellFlags & (1 << flag)) != 0);
+            }
+        }
+        for (int index = start; index < start + columns; index++) {
+            healths[index] = in.getFloat();
+        }
+        dirtyRows.set(storageRow);
+        redrawRows.set(storageRow);
+    }
+
+    /**
+     * Returns a storage row whose solid cells changed and clears its dirty bit, or -1 if none are left.
+     */
+    public int takeDirtyRow() {
+        int storageRow = dirtyRows.nextSetBit(0);
+        if (storageRow >= 0) {
+            dirtyRows.clear(storageRow);
+        }
+        return storageRow;
+    }
+
+    /**
+     * Returns a storage row that was filled or damaged and clears its redraw bit, or -1 if none are left.
+     */
+    public int takeRedrawRow() {
+        int storageRow = redrawRows.nextSetBit(0);
+        if (storageRow >= 0) {
+            redrawRows.clear(storageRow);
+        }
+        return storageRow;
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return flags.get(index * FLAG_COUNT + flag);
+    }
+
+    public boolean isSolid(int index) {
+        return healths[index] > 0.0f && !hasFlag(index, FLAG_CAVE);
+    }
+
+    public BitSet getSolidMask(int storageRow, BitSet out) {
+        out.clear();
+        int start = storageRow * columns;
+        for (int col = 0; col < columns; col++) {
+            if (isSolid(start + col)) {
+                out.set(col);
+            }
+        }
+        return out;
+    }
+
+    public byte getMaterial(int index) {
+        return materials[index];
+    }
+
+    public Color getColor(int index) {
+        return hasFlag(index, FLAG_ORE) ? Color.YELLOW : profile.getColor(materials[index]);
+    }
+
+    public float getHealth(int index) {
+        return healths[index];
+    }
+
+    public float getBaseHealth(int index) {
+        return profile.getHealth(materials[index]);
+    }
+
+    /**
+     * Returns the damage shade of a cell, from 0 (no health left) to SHADE_STEPS (undamaged).
+     */
+    public int getShade(int index) {
+        return ShadePalette.getShade(healths[index], getBaseHealth(index), SHADE_STEPS);
+    }
+
+    /**
+     * Returns the palette entry for the cell's colour at its current damage shade.
+     */
+    public int getPaletteEntry(int index) {
+        int base = hasFlag(index, FLAG_ORE) ? profile.getLayerCount() : materials[index];
+        return palette.getEntry(base, getShade(index));
+    }
+
+    public ShadePalette getPalette() {
+        return palette;
+    }
+
+    public void healthBy(int index, float by) {
+        float health = healths[index];
+        healths[index] = health + by;
+        redrawRows.set(index / columns);
+        if ((health > 0.0f) != (healths[index] > 0.0f)) {
+            dirtyRows.set(index / columns);
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public float getOriginX() {
+        return origin.x;
+    }
+
+    public float getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Places logical row 0 at the given depth. Only meaningful before any row is filled.
+     */
+    public void setTopRow(int topRow) {
+        this.topRow = topRow;
+    }
+
+    public int getTopRow() {
+        return topRow;
+    }
+}
@@ -0,0 +1,84 @@
+package org.latinschool;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+public class TerrainStreamer {
+    private final TerrainGenerator generator;
+    private final int chunkRows;
+    private final int lookAheadChunks;
+    private final int maxResidentChunks;
+    private final ForkJoinPool executor;
+
+    private final Map<Integer, CompletableFuture<TerrainChunk>> chunks = new HashMap<>();
+    private CompletableFuture<TerrainChunk> lastOrePass = CompletableFuture.completedFuture(null);
+    private int nextChunkIndex = 0;
+
+    public TerrainStreamer(TerrainGenerator generator, int chunkRows, int lookAheadChunks, int maxResidentChunks) {
+        if (maxResidentChunks <= lookAheadChunks) {
+            throw new IllegalArgumentException("maxResidentChunks must be greater than lookAheadChunks");
+        }
+        this.generator = generator;
+        this.chunkRows = chunkRows;
+        this.lookAheadChunks = lookAheadChunks;
+        this.maxResidentChunks = maxResidentChunks;
+        // Fork-join workers are daemon threads, and rows forked from a chunk stay on this pool
+        this.executor = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Drops chunks above the given row and queues generation up to the look-ahead distance below it.
+     */
+    public void update(int row) {
+        int chunkIndex = getChunkIndex(row);
+
+        Iterator<Map.Entry<Integer, CompletableFuture<TerrainChunk>>> iterator = chunks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey() < chunkIndex) {
+                iterator.remove();
+            }
+        }
+
+        nextChunkIndex = Math.max(nextChunkIndex, chunkIndex);
+        while (nextChunkIndex <= chunkIndex + lookAheadChunks && chunks.size() < maxResidentChunks) {
+            requestChunk(nextChunkIndex++);
+        }
+    }
+
+    private void requestChunk(int chunkIndex) {
+        int startRow = chunkIndex * chunkRows;
+        CompletableFuture<TerrainChunk> generated = CompletableFuture.supplyAsync(
+            () -> generator.generateChunk(startRow, chunkRows), executor);
+
+        // Ores depend on the ores placed above them, so this pass is chained in row order
+        lastOrePass = generated.thenCombineAsync(lastOrePass, (chunk, previous) -> generator.placeOres(chunk), executor);
+        chunks.put(chunkIndex, lastOrePass);
+    }
+
+    public boolean isRowReady(int row) {
+        CompletableFuture<TerrainChunk> future = chunks.get(getChunkIndex(row));
+        return future != null && future.isDone();
+    }
+
+    /**
+     * Returns the chunk holding the given row, blocking if it is still being generated.
+     */
+    public TerrainChunk getChunk(int row) {
+        int chunkIndex = getChunkIndex(row);
+        if (!chunks.containsKey(chunkIndex)) {
+            update(row);
+        }
+        return chunks.get(chunkIndex).join();
+    }
+
+    private int getChunkIndex(int row) {
+        return row / chunkRows;
+    }
+
+    public void dispose() {
+        executor.shutdownNow();
+    }
+}
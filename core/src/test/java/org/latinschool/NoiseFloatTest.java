@@ -0,0 +1,91 @@
+package org.latinschool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks noise2f against noise2 and noise3f_ImproveXY against noise3_ImproveXY on the same float inputs,
+ * per range of noise-space coordinates. The tolerances follow the measured error in their Javadoc with some margin.
+ */
+class NoiseFloatTest {
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void matchesNoise2UpTo1e2() {
+        assertMaxError2(1e2, 2e-4f);
+    }
+
+    @Test
+    void matchesNoise2UpTo1e3() {
+        assertMaxError2(1e3, 2e-3f);
+    }
+
+    @Test
+    void matchesNoise2UpTo1e4() {
+        assertMaxError2(1e4, 2e-2f);
+    }
+
+    @Test
+    void matchesNoise2UpTo1e5() {
+        assertMaxError2(1e5, 0.2f);
+    }
+
+    @Test
+    void matchesNoise2UpTo1e6() {
+        assertMaxError2(1e6, 0.8f);
+    }
+
+    @Test
+    void matchesNoise3UpTo1e2() {
+        assertMaxError3(1e2, 5e-3f);
+    }
+
+    @Test
+    void matchesNoise3UpTo1e3() {
+        assertMaxError3(1e3, 8e-3f);
+    }
+
+    @Test
+    void matchesNoise3UpTo1e4() {
+        assertMaxError3(1e4, 2e-2f);
+    }
+
+    @Test
+    void matchesNoise3UpTo1e5() {
+        assertMaxError3(1e5, 0.2f);
+    }
+
+    @Test
+    void matchesNoise3UpTo1e6() {
+        assertMaxError3(1e6, 1.0f);
+    }
+
+    private static void assertMaxError2(double range, float tolerance) {
+        Random random = new Random(7);
+        float maxError = 0.0f;
+        for (int i = 0; i < SAMPLES; i++) {
+            float x = (float) ((random.nextDouble() * 2 - 1) * range);
+            float y = (float) ((random.nextDouble() * 2 - 1) * range);
+            long seed = random.nextLong();
+            maxError = Math.max(maxError, Math.abs(Noise.noise2f(seed, x, y) - Noise.noise2(seed, x, y)));
+        }
+        assertTrue(maxError <= tolerance, "max error " + maxError + " up to " + range + " exceeds " + tolerance);
+    }
+
+    private static void assertMaxError3(double range, float tolerance) {
+        Random random = new Random(7);
+        float maxError = 0.0f;
+        for (int i = 0; i < SAMPLES; i++) {
+            float x = (float) ((random.nextDouble() * 2 - 1) * range);
+            float y = (float) ((random.nextDouble() * 2 - 1) * range);
+            float z = (float) ((random.nextDouble() * 2 - 1) * range);
+            long seed = random.nextLong();
+            maxError = Math.max(maxError,
+                Math.abs(Noise.noise3f_ImproveXY(seed, x, y, z) - Noise.noise3_ImproveXY(seed, x, y, z)));
+        }
+        assertTrue(maxError <= tolerance, "max error " + maxError + " up to " + range + " exceeds " + tolerance);
+    }
+}
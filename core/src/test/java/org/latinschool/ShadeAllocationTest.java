@@ -0,0 +1,62 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The per-frame shading path, damaging cells and bringing the mesh and block colours up to date,
+ * must not allocate once warmed up.
+ */
+class ShadeAllocationTest {
+    private static final int ROWS = 16;
+    private static final int COLUMNS = 15;
+    private static final int FRAMES = 20_000;
+
+    @Test
+    void warmedUpShadingAllocatesNothing() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "needs per-thread allocation counters");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported(), "needs per-thread allocation counters");
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        TerrainProfile profile = new TerrainProfile(new Color[]{Color.GREEN, Color.BROWN}, new int[]{0, 1},
+            new float[]{10.0f, 10.0f}, new Color[]{Color.GRAY});
+        TerrainStore store = new TerrainStore(ROWS, COLUMNS, new Vector2(0, 0), 1.0f, profile);
+        TerrainChunk chunk = new TerrainChunk(0, ROWS, COLUMNS);
+        for (int row = 0; row < ROWS; row++) {
+            store.fillRow(store.getStorageRow(row), chunk, row);
+        }
+        TerrainMeshBuilder builder = new TerrainMeshBuilder(store, 0.05f);
+        Block[] blocks = new Block[ROWS * COLUMNS];
+        for (int index = 0; index < blocks.length; index++) {
+            blocks[index] = new Block(store, index);
+        }
+
+        runFrames(store, builder, blocks);
+        long threadId = Thread.currentThread().getId();
+        allocations.getThreadAllocatedBytes(threadId);
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        runFrames(store, builder, blocks);
+        long after = allocations.getThreadAllocatedBytes(threadId);
+
+        assertEquals(0L, after - before, "bytes allocated over " + FRAMES + " frames");
+    }
+
+    private static void runFrames(TerrainStore store, TerrainMeshBuilder builder, Block[] blocks) {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            store.healthBy(frame % blocks.length, -0.001f);
+            builder.update();
+            for (Block block : blocks) {
+                assertNotNull(block.getShadedColor());
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.latinschool;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Headless checks of the mesh layout, in particular that indices never overflow 16 bits,
+ * and of which quads an update rewrites.
+ */
+class TerrainMeshBuilderTest {
+    @Test
+    void indicesOfAFullMeshFitUnsignedShorts() {
+        int quads = TerrainMeshBuilder.MAX_QUADS_PER_MESH;
+        short[] indices = TerrainMeshBuilder.createIndices(quads);
+        assertEquals(quads * 6, indices.length);
+        int max = 0;
+        for (short index : indices) {
+            max = Math.max(max, index & 0xFFFF);
+        }
+        assertEquals(quads * 4 - 1, max);
+        assertEquals(65535, indices[indices.length - 2] & 0xFFFF, "last vertex of the last quad");
+    }
+
+    @Test
+    void createIndicesRejectsMoreQuadsThanOneMeshHolds() {
+        assertThrows(IllegalArgumentException.class,
+            () -> TerrainMeshBuilder.createIndices(TerrainMeshBuilder.MAX_QUADS_PER_MESH + 1));
+    }
+
+    @Test
+    void largeTerrainIsSplitIntoMeshesWithin16BitIndices() {
+        TerrainMeshBuilder builder = createBuilder(241, 240);
+        assertEquals(4, builder.getMeshCount());
+        int quads = 0;
+        int indices = 0;
+        for (int mesh = 0; mesh < builder.getMeshCount(); mesh++) {
+            int meshQuads = builder.getMeshQuadCount(mesh);
+            assertTrue(meshQuads > 0 && meshQuads <= TerrainMeshBuilder.MAX_QUADS_PER_MESH);
+            quads += meshQuads;
+            indices += TerrainMeshBuilder.createIndices(meshQuads).length;
+        }
+        assertEquals(builder.getQuadCount(), quads);
+        assertEquals(builder.getQuadCount() * 6, indices);
+    }
+
+    @Test
+    void smallTerrainFitsOneMesh() {
+        TerrainMeshBuilder builder = createBuilder(16, 15);
+        assertEquals(1, builder.getMeshCount());
+        assertEquals(builder.getQuadCount(), builder.getMeshQuadCount(0));
+    }
+
+    @Test
+    void filledStoreWritesEveryQuad() {
+        TerrainStore store = createFilledStore(4, 5);
+        TerrainMeshBuilder builder = new TerrainMeshBuilder(store, 0.0f);
+        builder.update();
+        assertEquals(20 * 4, builder.getVertexCount());
+        assertEquals(20, builder.getQuadsWrittenLastUpdate());
+        builder.update();
+        assertEquals(0, builder.getQuadsWrittenLastUpdate());
+    }
+
+    @Test
+    void damageAcrossAShadeBoundaryRewritesOneQuad() {
+        TerrainStore store = createFilledStore(4, 5);
+        TerrainMeshBuilder builder = new TerrainMeshBuilder(store, 0.0f);
+        builder.update();
+        int index = store.getIndex(2, 3);
+        int shade = store.getShade(index);
+        store.healthBy(index, -3.0f);
+        assertTrue(store.getShade(index) != shade);
+        builder.update();
+        assertEquals(1, builder.getQuadsWrittenLastUpdate());
+        assertEquals(1, builder.getRangeCount());
+        assertEquals(index, builder.getRangeStart(0));
+        assertEquals(index + 1, builder.getRangeEnd(0));
+    }
+
+    @Test
+    void damageWithinAShadeRewritesNothing() {
+        TerrainStore store = createFilledStore(4, 5);
+        TerrainMeshBuilder builder = new TerrainMeshBuilder(store, 0.0f);
+        builder.update();
+        int index = store.getIndex(1, 1);
+        int shade = store.getShade(index);
+        store.healthBy(index, -1.0f);
+        assertEquals(shade, store.getShade(index));
+        builder.update();
+        assertEquals(0, builder.getQuadsWrittenLastUpdate());
+        assertEquals(0, builder.getRangeCount());
+    }
+
+    @Test
+    void cycledRowRewritesOneRowOfQuads() {
+        TerrainStore store = createFilledStore(4, 5);
+        TerrainMeshBuilder builder = new TerrainMeshBuilder(store, 0.0f);
+        builder.update();
+        int storageRow = store.cycleRow();
+        store.fillRow(storageRow, createChunk(1, 5), 0);
+        builder.update();
+        assertEquals(5, builder.getQuadsWrittenLastUpdate());
+        assertEquals(1, builder.getRangeCount());
+        assertEquals(storageRow * 5, builder.getRangeStart(0));
+        assertEquals((storageRow + 1) * 5, builder.getRangeEnd(0));
+    }
+
+    private static TerrainMeshBuilder createBuilder(int rows, int columns) {
+        return new TerrainMeshBuilder(createStore(rows, columns), 0.0f);
+    }
+
+    private static TerrainStore createStore(int rows, int columns) {
+        TerrainProfile profile = new TerrainProfile(new Color[]{Color.GREEN, Color.BROWN}, new int[]{0, 1},
+            new float[]{10.0f, 10.0f}, new Color[]{Color.GRAY});
+        return new TerrainStore(rows, columns, new Vector2(0, 10), 10.0f / columns, profile);
+    }
+
+    /**
+     * Returns a store whose every cell is solid, undamaged first-layer material.
+     */
+    private static TerrainStore createFilledStore(int rows, int columns) {
+        TerrainStore store = createStore(rows, columns);
+        TerrainChunk chunk = createChunk(rows, columns);
+        for (int row = 0; row < rows; row++) {
+            store.fillRow(store.getStorageRow(row), chunk, row);
+        }
+        return store;
+    }
+
+    /**
+     * A fresh chunk is all first-layer material with no caves or ores.
+     */
+    private static TerrainChunk createChunk(int rows, int columns) {
+        return new TerrainChunk(0, rows, columns);
+    }
+}
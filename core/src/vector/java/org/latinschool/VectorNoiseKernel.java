@@ -0,0 +1,288 @@
+package org.latinschool;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import static org.latinschool.Noise.*;
+
+/**
+ * {@link NoiseKernel} built on the incubating Vector API. Lanes follow the preferred double vector width
+ * (4 on AVX2, 8 on AVX-512), with the float, int and long species sized to the same lane count.
+ * Branches of the scalar code become masked lanes, and the arithmetic keeps the scalar operation order,
+ * so results match {@link Noise} bit for bit. Only loaded reflectively by {@link NoiseKernels}.
+ */
+public class VectorNoiseKernel implements NoiseKernel {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> L = VectorSpecies.of(long.class, VectorShape.forBitSize(D.vectorBitSize()));
+    private static final VectorSpecies<Float> F = VectorSpecies.of(float.class, VectorShape.forBitSize(D.length() * Float.SIZE));
+    private static final VectorSpecies<Integer> I = VectorSpecies.of(int.class, VectorShape.forBitSize(D.length() * Integer.SIZE));
+
+    private static final int GRAD_MASK_2D = (N_GRADS_2D - 1) << 1;
+    private static final int GRAD_MASK_3D = (N_GRADS_3D - 1) << 2;
+    private static final int HASH_SHIFT_2D = 64 - N_GRADS_2D_EXPONENT + 1;
+    private static final int HASH_SHIFT_3D = 64 - N_GRADS_3D_EXPONENT + 2;
+
+    private static final float A1_T_FACTOR = (float)(2 * (1 + 2 * UNSKEW_2D) * (1 / UNSKEW_2D + 2));
+    private static final float A1_OFFSET = (float)(-2 * (1 + 2 * UNSKEW_2D) * (1 + 2 * UNSKEW_2D));
+
+    public VectorNoiseKernel() {
+        if (D.length() < 2) {
+            throw new IllegalStateException("No usable vector width");
+        }
+    }
+
+    @Override
+    public int lanes() {
+        return D.length();
+    }
+
+    /*
+     * 2D
+     */
+
+    @Override
+    public void noise2(long seed, double[] x, double[] y, float[] out, int count) {
+        int[] gradIndices = new int[D.length()];
+        int i = 0;
+        for (int upper = D.loopBound(count); i < upper; i += D.length()) {
+            DoubleVector xv = DoubleVector.fromArray(D, x, i);
+            DoubleVector yv = DoubleVector.fromArray(D, y, i);
+
+            // Get points for A2* lattice
+            DoubleVector s = xv.add(yv).mul(SKEW_2D);
+            noise2_UnskewedBase(seed, xv.add(s), yv.add(s), gradIndices).intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            out[i] = Noise.noise2(seed, x[i], y[i]);
+        }
+    }
+
+    private static FloatVector noise2_UnskewedBase(long seed, DoubleVector xs, DoubleVector ys, int[] gradIndices) {
+
+        // Get base points and offsets.
+        LongVector xsb = fastFloor(xs), ysb = fastFloor(ys);
+        FloatVector xi = toFloat(xs.sub(toDouble(xsb)));
+        FloatVector yi = toFloat(ys.sub(toDouble(ysb)));
+
+        // Prime pre-multiplication for hash.
+        LongVector xsbp = xsb.mul(PRIME_X), ysbp = ysb.mul(PRIME_Y);
+
+        // Unskew.
+        FloatVector t = xi.add(yi).mul((float)UNSKEW_2D);
+        FloatVector dx0 = xi.add(t), dy0 = yi.add(t);
+
+        // First vertex.
+        FloatVector a0 = FloatVector.broadcast(F, RSQUARED_2D).sub(dx0.mul(dx0)).sub(dy0.mul(dy0));
+        FloatVector value = FloatVector.zero(F).blend(
+            falloff(a0).mul(grad(seed, xsbp, ysbp, dx0, dy0, gradIndices)), a0.compare(VectorOperators.GT, 0));
+
+        // Second vertex.
+        FloatVector a1 = t.mul(A1_T_FACTOR).add(a0.add(A1_OFFSET));
+        FloatVector dx1 = dx0.sub((float)(1 + 2 * UNSKEW_2D));
+        FloatVector dy1 = dy0.sub((float)(1 + 2 * UNSKEW_2D));
+        value = value.add(falloff(a1).mul(grad(seed, xsbp.add(PRIME_X), ysbp.add(PRIME_Y), dx1, dy1, gradIndices)),
+            a1.compare(VectorOperators.GT, 0));
+
+        // Third vertex, both branches blended per lane.
+        VectorMask<Float> upper = dy0.compare(VectorOperators.GT, dx0);
+        VectorMask<Long> upperL = upper.cast(L);
+        FloatVector dx2 = dx0.sub((float)(UNSKEW_2D + 1)).blend(dx0.sub((float)UNSKEW_2D), upper);
+        FloatVector dy2 = dy0.sub((float)UNSKEW_2D).blend(dy0.sub((float)(UNSKEW_2D + 1)), upper);
+        LongVector xsvp = xsbp.add(PRIME_X).blend(xsbp, upperL);
+        LongVector ysvp = ysbp.blend(ysbp.add(PRIME_Y), upperL);
+        FloatVector a2 = FloatVector.broadcast(F, RSQUARED_2D).sub(dx2.mul(dx2)).sub(dy2.mul(dy2));
+        value = value.add(falloff(a2).mul(grad(seed, xsvp, ysvp, dx2, dy2, gradIndices)),
+            a2.compare(VectorOperators.GT, 0));
+
+        return value;
+    }
+
+    /*
+     * 3D
+     */
+
+    @Override
+    public void noise3_ImproveXY(long seed, double[] x, double[] y, double[] z, float[] out, int count) {
+        int[] gradIndices = new int[D.length()];
+        int i = 0;
+        for (int upper = D.loopBound(count); i < upper; i += D.length()) {
+            DoubleVector xv = DoubleVector.fromArray(D, x, i);
+            DoubleVector yv = DoubleVector.fromArray(D, y, i);
+            DoubleVector zv = DoubleVector.fromArray(D, z, i);
+
+            // Re-orient the cubic lattices without skewing, as in Noise.noise3_ImproveXY.
+            DoubleVector xy = xv.add(yv);
+            DoubleVector s2 = xy.mul(ROTATE_3D_ORTHOGONALIZER);
+            DoubleVector zz = zv.mul(ROOT3OVER3);
+            DoubleVector xr = xv.add(s2).add(zz);
+            DoubleVector yr = yv.add(s2).add(zz);
+            DoubleVector zr = xy.mul(-ROOT3OVER3).add(zz);
+
+            noise3_UnrotatedBase(seed, xr, yr, zr, gradIndices).intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            out[i] = Noise.noise3_ImproveXY(seed, x[i], y[i], z[i]);
+        }
+    }
+
+    private static FloatVector noise3_UnrotatedBase(long seed, DoubleVector xr, DoubleVector yr, DoubleVector zr,
+                                                    int[] gradIndices) {
+
+        // Get base points and offsets.
+        LongVector xrb = fastRound(xr), yrb = fastRound(yr), zrb = fastRound(zr);
+        FloatVector xri = toFloat(xr.sub(toDouble(xrb)));
+        FloatVector yri = toFloat(yr.sub(toDouble(yrb)));
+        FloatVector zri = toFloat(zr.sub(toDouble(zrb)));
+
+        // -1 if positive, 1 if negative.
+        IntVector xNSign = negativeSign(xri), yNSign = negativeSign(yri), zNSign = negativeSign(zri);
+        FloatVector xSign = toFloat(xNSign), ySign = toFloat(yNSign), zSign = toFloat(zNSign);
+
+        // Absolute values.
+        FloatVector ax0 = xSign.mul(xri.neg()), ay0 = ySign.mul(yri.neg()), az0 = zSign.mul(zri.neg());
+
+        // Prime pre-multiplication for hash.
+        LongVector xrbp = xrb.mul(PRIME_X), yrbp = yrb.mul(PRIME_Y), zrbp = zrb.mul(PRIME_Z);
+
+        // Loop: Pick an edge on each lattice copy.
+        FloatVector value = FloatVector.zero(F);
+        FloatVector a = FloatVector.broadcast(F, RSQUARED_3D).sub(xri.mul(xri)).sub(yri.mul(yri).add(zri.mul(zri)));
+        for (int l = 0; ; l++) {
+
+            // Closest point on cube.
+            value = value.add(falloff(a).mul(grad(seed, xrbp, yrbp, zrbp, xri, yri, zri, gradIndices)),
+                a.compare(VectorOperators.GT, 0));
+
+            // Second-closest point, the three scalar branches as lane masks.
+            VectorMask<Float> alongX = ax0.compare(VectorOperators.GE, ay0).and(ax0.compare(VectorOperators.GE, az0));
+            VectorMask<Float> alongY = alongX.not().and(ay0.compare(VectorOperators.GT, ax0))
+                .and(ay0.compare(VectorOperators.GE, az0));
+            VectorMask<Float> alongZ = alongX.or(alongY).not();
+
+            FloatVector axis = az0.blend(ay0, alongY).blend(ax0, alongX);
+            FloatVector b = a.add(axis).add(axis);
+            LongVector xrvp = xrbp.blend(xrbp.sub(toLong(xNSign).mul(PRIME_X)), alongX.cast(L));
+            LongVector yrvp = yrbp.blend(yrbp.sub(toLong(yNSign).mul(PRIME_Y)), alongY.cast(L));
+            LongVector zrvp = zrbp.blend(zrbp.sub(toLong(zNSign).mul(PRIME_Z)), alongZ.cast(L));
+            FloatVector dx = xri.blend(xri.add(xSign), alongX);
+            FloatVector dy = yri.blend(yri.add(ySign), alongY);
+            FloatVector dz = zri.blend(zri.add(zSign), alongZ);
+            VectorMask<Float> reaches = b.compare(VectorOperators.GT, 1);
+            b = b.sub(1);
+            value = value.add(falloff(b).mul(grad(seed, xrvp, yrvp, zrvp, dx, dy, dz, gradIndices)), reaches);
+
+            // Break from loop if we're done, skipping updates below.
+            if (l == 1) break;
+
+            // Update absolute value.
+            ax0 = FloatVector.broadcast(F, 0.5f).sub(ax0);
+            ay0 = FloatVector.broadcast(F, 0.5f).sub(ay0);
+            az0 = FloatVector.broadcast(F, 0.5f).sub(az0);
+
+            // Update relative coordinate.
+            xri = xSign.mul(ax0);
+            yri = ySign.mul(ay0);
+            zri = zSign.mul(az0);
+
+            // Update falloff.
+            a = a.add(FloatVector.broadcast(F, 0.75f).sub(ax0).sub(ay0.add(az0)));
+
+            // Update prime for hash.
+            xrbp = xrbp.add(PRIME_X, xSign.compare(VectorOperators.LT, 0).cast(L));
+            yrbp = yrbp.add(PRIME_Y, ySign.compare(VectorOperators.LT, 0).cast(L));
+            zrbp = zrbp.add(PRIME_Z, zSign.compare(VectorOperators.LT, 0).cast(L));
+
+            // Update the reverse sign indicators.
+            xNSign = xNSign.neg();
+            yNSign = yNSign.neg();
+            zNSign = zNSign.neg();
+            xSign = xSign.neg();
+            ySign = ySign.neg();
+            zSign = zSign.neg();
+
+            // And finally update the seed for the other lattice copy.
+            seed ^= SEED_FLIP_3D;
+        }
+
+        return value;
+    }
+
+    /*
+     * Utility
+     */
+
+    private static FloatVector falloff(FloatVector a) {
+        FloatVector aa = a.mul(a);
+        return aa.mul(aa);
+    }
+
+    private static FloatVector grad(long seed, LongVector xsvp, LongVector ysvp, FloatVector dx, FloatVector dy,
+                                    int[] gradIndices) {
+        LongVector hash = xsvp.lanewise(VectorOperators.XOR, seed).lanewise(VectorOperators.XOR, ysvp);
+        hash = hash.mul(HASH_MULTIPLIER);
+        hash = hash.lanewise(VectorOperators.XOR, hash.lanewise(VectorOperators.ASHR, HASH_SHIFT_2D));
+        toInt(hash).and(GRAD_MASK_2D).intoArray(gradIndices, 0);
+
+        FloatVector gx = FloatVector.fromArray(F, GRADIENTS_2D, 0, gradIndices, 0);
+        FloatVector gy = FloatVector.fromArray(F, GRADIENTS_2D, 1, gradIndices, 0);
+        return gx.mul(dx).add(gy.mul(dy));
+    }
+
+    private static FloatVector grad(long seed, LongVector xrvp, LongVector yrvp, LongVector zrvp,
+                                    FloatVector dx, FloatVector dy, FloatVector dz, int[] gradIndices) {
+        LongVector hash = xrvp.lanewise(VectorOperators.XOR, seed).lanewise(VectorOperators.XOR,
+            yrvp.lanewise(VectorOperators.XOR, zrvp));
+        hash = hash.mul(HASH_MULTIPLIER);
+        hash = hash.lanewise(VectorOperators.XOR, hash.lanewise(VectorOperators.ASHR, HASH_SHIFT_3D));
+        toInt(hash).and(GRAD_MASK_3D).intoArray(gradIndices, 0);
+
+        FloatVector gx = FloatVector.fromArray(F, GRADIENTS_3D, 0, gradIndices, 0);
+        FloatVector gy = FloatVector.fromArray(F, GRADIENTS_3D, 1, gradIndices, 0);
+        FloatVector gz = FloatVector.fromArray(F, GRADIENTS_3D, 2, gradIndices, 0);
+        return gx.mul(dx).add(gy.mul(dy)).add(gz.mul(dz));
+    }
+
+    private static LongVector fastFloor(DoubleVector x) {
+        LongVector xi = truncate(x);
+        return xi.sub(1, x.compare(VectorOperators.LT, toDouble(xi)).cast(L));
+    }
+
+    private static LongVector fastRound(DoubleVector x) {
+        VectorMask<Long> negative = x.compare(VectorOperators.LT, 0).cast(L);
+        return truncate(x.add(0.5)).blend(truncate(x.sub(0.5)), negative);
+    }
+
+    private static IntVector negativeSign(FloatVector x) {
+        return ((IntVector) FloatVector.broadcast(F, -1.0f).sub(x).convert(VectorOperators.F2I, 0)).or(1);
+    }
+
+    private static LongVector truncate(DoubleVector x) {
+        return (LongVector) x.convertShape(VectorOperators.D2L, L, 0);
+    }
+
+    private static DoubleVector toDouble(LongVector x) {
+        return (DoubleVector) x.convertShape(VectorOperators.L2D, D, 0);
+    }
+
+    private static FloatVector toFloat(DoubleVector x) {
+        return (FloatVector) x.convertShape(VectorOperators.D2F, F, 0);
+    }
+
+    private static FloatVector toFloat(IntVector x) {
+        return (FloatVector) x.convertShape(VectorOperators.I2F, F, 0);
+    }
+
+    private static IntVector toInt(LongVector x) {
+        return (IntVector) x.convertShape(VectorOperators.L2I, I, 0);
+    }
+
+    private static LongVector toLong(IntVector x) {
+        return (LongVector) x.convertShape(VectorOperators.I2L, L, 0);
+    }
+}